@@ -0,0 +1,156 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Describes the rules of a bowling variant: how many pins are set up, how many balls make up a
+ * frame, how many bonus balls are earned by knocking every pin down with each ball, and how
+ * many frames a game has. The final frame grants the earned bonus balls as extra balls instead of
+ * a bonus from the next frame, on a freshly set rack.
+ *
+ * A {@link RulesScorer} is built once from the rules, so that scoring never has to look at them.
+ *
+ * @author Roger Delacruz
+ */
+public class BowlingRules {
+
+	/** American Ten-Pin Bowling, as scored by {@link BowlingScore}. **/
+	public static final BowlingRules TEN_PIN = new BowlingRules("ten-pin", 10, 10, new int[] { 2, 1 },
+			10);
+
+	/** Ten-pin scoring where nine pins down on the first ball of a rack count as a strike. **/
+	public static final BowlingRules NINE_PIN_NO_TAP = new BowlingRules("9-pin no-tap", 10, 10,
+			new int[] { 2, 1 }, 9);
+
+	/** Nine-pin bowling, with ten-pin frames and bonuses. **/
+	public static final BowlingRules NINE_PIN = new BowlingRules("nine-pin", 9, 10, new int[] { 2, 1 },
+			9);
+
+	/** Five-pin bowling, where the pins are worth 15 points in total and frames have three balls. **/
+	public static final BowlingRules FIVE_PIN = new BowlingRules("five-pin", 15, 10,
+			new int[] { 2, 1, 0 }, 15);
+
+	/** Candlepin bowling, with three balls per frame and no bonus for a ten on the third ball. **/
+	public static final BowlingRules CANDLEPIN = new BowlingRules("candlepin", 10, 10,
+			new int[] { 2, 1, 0 }, 10);
+
+	/** Duckpin bowling, which is scored like candlepin. **/
+	public static final BowlingRules DUCKPIN = new BowlingRules("duckpin", 10, 10,
+			new int[] { 2, 1, 0 }, 10);
+
+	/* Constants should be place before this line */
+
+	/** Name of the variant. **/
+	private final String name;
+
+	/** Number of pins (or pin points) in a full rack. **/
+	private final int pins;
+
+	/** Number of frames in a game. **/
+	private final int frames;
+
+	/** Number of bonus balls earned by clearing the rack with each ball of a frame. **/
+	private final int[] bonusBalls;
+
+	/** Number of pins knocked down with the first ball of a rack that counts as clearing it. **/
+	private final int strikePins;
+
+	/**
+	 * Initializes the rules.
+	 *
+	 * @param name - Name of the variant.
+	 * @param pins - Number of pins (or pin points) in a full rack.
+	 * @param frames - Number of frames in a game.
+	 * @param bonusBalls - Number of bonus balls earned by clearing the rack with each ball of a
+	 * frame. Its length is the number of balls per frame.
+	 * @param strikePins - Number of pins knocked down with the first ball of a rack that counts as
+	 * a strike (the same as pins, except for no-tap variants).
+	 */
+	public BowlingRules(String name, int pins, int frames, int[] bonusBalls, int strikePins) {
+		if (pins <= 0 || frames <= 0 || bonusBalls.length == 0)
+			throw new IllegalArgumentException("Pins, frames and balls per frame must be positive.");
+		if (strikePins <= 0 || strikePins > pins)
+			throw new IllegalArgumentException("Strike pins must be between 1 and " + pins + ".");
+		for (int bonus : bonusBalls)
+			if (bonus < 0)
+				throw new IllegalArgumentException("Bonus balls cannot be negative.");
+		this.name = name;
+		this.pins = pins;
+		this.frames = frames;
+		this.bonusBalls = bonusBalls.clone();
+		this.strikePins = strikePins;
+	}
+
+	/**
+	 * Gets the name of the variant.
+	 *
+	 * @return Variant name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the number of pins (or pin points) in a full rack.
+	 *
+	 * @return Number of pins.
+	 */
+	public int getPins() {
+		return pins;
+	}
+
+	/**
+	 * Gets the number of frames in a game.
+	 *
+	 * @return Number of frames.
+	 */
+	public int getFrames() {
+		return frames;
+	}
+
+	/**
+	 * Gets the number of balls in a regular frame.
+	 *
+	 * @return Balls per frame.
+	 */
+	public int getBallsPerFrame() {
+		return bonusBalls.length;
+	}
+
+	/**
+	 * Gets the number of bonus balls earned by clearing the rack with the given ball of a frame.
+	 *
+	 * @param ball - Ball index within the frame (0 for the first ball).
+	 * @return Number of bonus balls.
+	 */
+	public int getBonusBalls(int ball) {
+		return bonusBalls[ball];
+	}
+
+	/**
+	 * Gets the highest number of bonus balls earned by a single clear.
+	 *
+	 * @return Maximum number of bonus balls.
+	 */
+	public int getMaxBonusBalls() {
+		int max = 0;
+		for (int bonus : bonusBalls)
+			max = Math.max(max, bonus);
+		return max;
+	}
+
+	/**
+	 * Gets the number of pins knocked down with the first ball of a rack that counts as a strike.
+	 *
+	 * @return Strike pins.
+	 */
+	public int getStrikePins() {
+		return strikePins;
+	}
+
+	@Override
+	public String toString() {
+		return name + "[pins=" + pins + ", frames=" + frames + ", bonusBalls="
+				+ Arrays.toString(bonusBalls) + ", strikePins=" + strikePins + "]";
+	}
+}
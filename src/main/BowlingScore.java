@@ -25,6 +25,9 @@ public class BowlingScore {
 	/** List of frames. **/
 	private List<Frame> frames;
 	
+	/** Packed state of the game, kept alongside the frames for constant time projections. **/
+	private int packed;
+	
 	/**
 	 * Initializes the frames for the start of the game.
 	 */
@@ -32,6 +35,7 @@ public class BowlingScore {
 		updateIndex = 0;
 		frames = new ArrayList<Frame>(MAX_FRAMES);	// Sets array list with max capacity
 		frames.add(new Frame());		// First frame
+		packed = PackedGame.NEW_GAME;
 	}
 	
 	/**
@@ -57,22 +61,26 @@ public class BowlingScore {
 	 * down has been exceeded.
 	 */
 	public void processNumber(int number) throws IllegalStateException {
+		int nextPacked = PackedGame.number(packed, number);
 		updateFrames();
 		
 		// Processes the number of pins knocked down within the current frame
 		Frame currFrame = frames.get(updateIndex);
 		currFrame.updateScore(number);
+		packed = nextPacked;
 	}
 	
 	/**
 	 * Processes miss and updates frames accordingly.
 	 */
 	public void processMiss() {
+		int nextPacked = PackedGame.miss(packed);
 		updateFrames();
 		
 		// Processes miss (0 pins knocked down) within the current frame
 		Frame currFrame = frames.get(updateIndex);
 		currFrame.updateScore(0);
+		packed = nextPacked;
 	}
 	
 	/**
@@ -82,11 +90,13 @@ public class BowlingScore {
 	 * one roll.
 	 */
 	public void processSpare() throws IllegalStateException {
+		int nextPacked = PackedGame.spare(packed);
 		updateFrames();
 		
 		// Processes spare within the current frame
 		Frame currFrame = frames.get(updateIndex);
 		currFrame.scoreSpare();
+		packed = nextPacked;
 	}
 	
 	/**
@@ -95,11 +105,57 @@ public class BowlingScore {
 	 * @throws IllegalStateException Strike can only be performed on empty frame.
 	 */
 	public void processStrike() throws IllegalStateException {
+		int nextPacked = PackedGame.strike(packed);
 		updateFrames();
 		
 		// Processes strike within the current frame
 		Frame currFrame = frames.get(updateIndex);
 		currFrame.scoreStrike();
+		packed = nextPacked;
+	}
+	
+	/**
+	 * Processes a single roll symbol using the same notation as the application input: "X" for
+	 * a strike, "/" for a spare, "-" for a miss, and "1" to "9" for the number of pins knocked down.
+	 * 
+	 * @param symbol - Roll symbol to process.
+	 * @throws IllegalStateException The roll cannot be applied to the current frame.
+	 * @throws IllegalArgumentException The symbol is not a valid roll symbol.
+	 */
+	public void processRoll(char symbol) throws IllegalStateException, IllegalArgumentException {
+		switch (symbol) {
+			case 'X' :
+				processStrike();
+				break;
+			case '/' :
+				processSpare();
+				break;
+			case '-' :
+				processMiss();
+				break;
+			default :
+				if (symbol < '1' || symbol > '9')
+					throw new IllegalArgumentException("Invalid roll symbol: " + symbol);
+				processNumber(symbol - '0');
+				break;
+		}
+	}
+	
+	/**
+	 * Creates a game from a whole line of roll symbols, using the same notation as the
+	 * application input.
+	 * 
+	 * @param line - Sequence of roll symbols for a single game.
+	 * @return Game with every roll of the line processed.
+	 * @throws IllegalStateException Some roll cannot be applied to its frame.
+	 * @throws IllegalArgumentException Some character is not a valid roll symbol.
+	 */
+	public static BowlingScore fromLine(CharSequence line) throws IllegalStateException,
+			IllegalArgumentException {
+		BowlingScore game = new BowlingScore();
+		for (int i = 0; i < line.length(); i++)
+			game.processRoll(line.charAt(i));
+		return game;
 	}
 	
 	/**
@@ -120,6 +176,93 @@ public class BowlingScore {
 		return frames.get(updateIndex).isFinalFrame();
 	}
 	
+	/**
+	 * Determines whether the game is over, meaning the final frame and its bonus rolls are done.
+	 * 
+	 * @return True if no more rolls can be processed, false otherwise.
+	 */
+	public boolean isGameOver() {
+		Frame currFrame = frames.get(updateIndex);
+		return currFrame.isFinalFrame() && currFrame.isFinished();
+	}
+	
+	/**
+	 * Gets number of frames that can no longer accept rolls.
+	 * 
+	 * @return Number of closed frames.
+	 */
+	public int getClosedFrames() {
+		return frames.get(updateIndex).isFinished() ? updateIndex + 1 : updateIndex;
+	}
+	
+	/**
+	 * Gets number of leading frames whose score is final, meaning the frame is closed and every
+	 * roll needed for its spare or strike bonus has been made.
+	 * 
+	 * @return Number of resolved frames.
+	 */
+	public int getResolvedFrames() {
+		int closed = getClosedFrames();
+		for (int i = 0; i < closed; i++) {
+			Frame frame = frames.get(i);
+			int needed = frame.isFinalFrame() ? 0 : frame.isStrike() ? 2 : frame.isSpare() ? 1 : 0;
+			
+			// Counts rolls available in the following frames for the bonus
+			for (int j = i + 1; j < frames.size() && needed > 0; j++)
+				needed -= Math.min(needed, frames.get(j).getRolls());
+			if (needed > 0)
+				return i;
+		}
+		return closed;
+	}
+	
+	/**
+	 * Gets the highest final score the game can still reach, assuming every remaining roll
+	 * knocks down every standing pin (including the bonus balls of the final frame). This takes
+	 * constant time, no matter how far the game has gone.
+	 * 
+	 * @return Maximum possible score.
+	 */
+	public int maxPossibleScore() {
+		return PackedGame.maxPossibleScore(packed);
+	}
+	
+	/**
+	 * Gets the lowest final score the game can still reach, assuming every remaining roll is a
+	 * miss. This takes constant time, no matter how far the game has gone.
+	 * 
+	 * @return Minimum possible score.
+	 */
+	public int minPossibleScore() {
+		return PackedGame.minPossibleScore(packed);
+	}
+	
+	/**
+	 * Calculates the points of a single frame, including its spare or strike bonus from the
+	 * following frames. Nothing is allocated, so scores can be recalculated after every roll.
+	 * 
+	 * @param index - Index of the frame.
+	 * @return Points of the frame.
+	 */
+	private int calculateFrameScore(int index) {
+		Frame frame = frames.get(index);
+		Frame nextFrame = index + 1 < frames.size() ? frames.get(index + 1) : null;
+		int points = 0;
+		
+		// Checks for potential spares and strikes
+		if (frame.isSpare()) {
+			points += frame.getSpareBonus(nextFrame);
+		} else if (frame.isStrike()) {
+			Frame secondFrame = index + 2 < frames.size() ? frames.get(index + 2) : null;
+			points += frame.getStrikeBonus(nextFrame, secondFrame);
+		}
+		
+		// Adds the rolls of the frame itself
+		for (int i = 0; i < frame.getRolls(); i++)
+			points += frame.getPoint(i);
+		return points;
+	}
+	
 	/**
 	 * Calculates the total score of the current game by iterating through the
 	 * frames and performing calculations accordingly.
@@ -130,32 +273,28 @@ public class BowlingScore {
 		int total = 0;
 		
 		// Iterate through the points of every frame and sum them up
+		for (int i = 0; i < frames.size(); i++)
+			total += calculateFrameScore(i);
+		
+		return total;
+	}
+	
+	/**
+	 * Calculates the cumulative score at the end of every frame played so far, the way they
+	 * would be written on a scorecard.
+	 * 
+	 * @return Cumulative scores, one per frame.
+	 */
+	public int[] calculateFrameScores() {
+		int[] scores = new int[frames.size()];
+		int total = 0;
+		
+		// Same calculation as the total score, recording the running total of every frame
 		for (int i = 0; i < frames.size(); i++) {
-			Frame frame = frames.get(i);
-			int extra = 0;
-			
-			// Checks for potential spares and strikes
-			if (frame.isSpare()) {
-				if (i + 1 < frames.size())
-					extra += frame.getSpareBonus(frames.get(i + 1));
-			} else if (frame.isStrike()) {
-				List<Frame> nextFrames = new ArrayList<Frame>();
-				
-				// Adds up to two frames to the frame list to process
-				if (i + 1 < frames.size())
-					nextFrames.add(frames.get(i + 1));
-				if (i + 2 < frames.size())
-					nextFrames.add(frames.get(i + 2));
-				
-				extra += frame.getStrikeBonus(nextFrames);
-			}
-			
-			// Calculates points up to current frame
-			for (Integer point : frame.getPoints())
-				total += point;
-			total += extra;
+			total += calculateFrameScore(i);
+			scores[i] = total;
 		}
 		
-		return total;
+		return scores;
 	}
 }
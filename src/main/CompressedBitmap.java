@@ -0,0 +1,453 @@
+package main;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints, used to index large archives of games by id.
+ *
+ * Values are grouped by their high 16 bits into containers. A container holding few values
+ * keeps them as a sorted array of their low 16 bits, while a container holding many values keeps
+ * a plain 65536-bit bitmap, so both sparse and dense sets stay compact. Intersections, unions and
+ * differences work container by container, without decompressing the whole set.
+ *
+ * Values must be added in increasing order, which is how game ids are handed out during ingest.
+ * Bitmaps returned by the set operations are new, and share no containers with their inputs.
+ *
+ * @author Roger Delacruz
+ */
+public class CompressedBitmap {
+
+	/** Largest number of values kept in an array container. **/
+	private static final int ARRAY_LIMIT = 4096;
+
+	/** Number of longs in a bitmap container. **/
+	private static final int BITMAP_WORDS = 1 << 10;
+
+	/** Initial number of container slots. **/
+	private static final int INITIAL_CONTAINERS = 4;
+
+	/** Initial length of a new array container. **/
+	private static final int INITIAL_ARRAY = 8;
+
+	/* Constants should be place before this line */
+
+	/** High 16 bits of the values in each container. **/
+	private char[] keys;
+
+	/** Sorted low 16 bits of each array container (null for a bitmap container). **/
+	private char[][] arrays;
+
+	/** Bits of each bitmap container (null for an array container). **/
+	private long[][] bitmaps;
+
+	/** Number of values in each container. **/
+	private int[] cardinalities;
+
+	/** Number of containers in use. **/
+	private int size;
+
+	/**
+	 * Initializes an empty bitmap.
+	 */
+	public CompressedBitmap() {
+		keys = new char[INITIAL_CONTAINERS];
+		arrays = new char[INITIAL_CONTAINERS][];
+		bitmaps = new long[INITIAL_CONTAINERS][];
+		cardinalities = new int[INITIAL_CONTAINERS];
+	}
+
+	/**
+	 * Adds a value, which must not be smaller than any value already in the bitmap.
+	 *
+	 * @param value - Value to add.
+	 * @throws IllegalArgumentException The value is negative or out of order.
+	 */
+	public void add(int value) throws IllegalArgumentException {
+		if (value < 0)
+			throw new IllegalArgumentException("Negative values cannot be added: " + value);
+		char key = (char) (value >>> 16);
+		char low = (char) value;
+
+		if (size == 0 || keys[size - 1] != key) {
+			if (size > 0 && keys[size - 1] > key)
+				throw new IllegalArgumentException("Values must be added in increasing order.");
+			appendContainer(key, new char[INITIAL_ARRAY], null, 0);
+		}
+
+		int last = size - 1;
+		int cardinality = cardinalities[last];
+		if (arrays[last] != null) {
+			char[] array = arrays[last];
+			if (cardinality > 0) {
+				if (array[cardinality - 1] == low)
+					return;
+				if (array[cardinality - 1] > low)
+					throw new IllegalArgumentException("Values must be added in increasing order.");
+			}
+			if (cardinality == ARRAY_LIMIT) {
+				bitmaps[last] = toBitmap(array, cardinality);
+				arrays[last] = null;
+			} else {
+				if (cardinality == array.length)
+					arrays[last] = array = Arrays.copyOf(array, Math.min(ARRAY_LIMIT, cardinality * 2));
+				array[cardinality] = low;
+				cardinalities[last]++;
+				return;
+			}
+		}
+
+		long[] bitmap = bitmaps[last];
+		long bit = 1L << low;
+		if ((bitmap[low >>> 6] & bit) == 0) {
+			bitmap[low >>> 6] |= bit;
+			cardinalities[last]++;
+		}
+	}
+
+	/**
+	 * Appends a container after the existing ones.
+	 *
+	 * @param key - High 16 bits of the values in the container.
+	 * @param array - Array container, or null.
+	 * @param bitmap - Bitmap container, or null.
+	 * @param cardinality - Number of values in the container.
+	 */
+	private void appendContainer(char key, char[] array, long[] bitmap, int cardinality) {
+		if (size == keys.length) {
+			int grown = size * 2;
+			keys = Arrays.copyOf(keys, grown);
+			arrays = Arrays.copyOf(arrays, grown);
+			bitmaps = Arrays.copyOf(bitmaps, grown);
+			cardinalities = Arrays.copyOf(cardinalities, grown);
+		}
+		keys[size] = key;
+		arrays[size] = array;
+		bitmaps[size] = bitmap;
+		cardinalities[size] = cardinality;
+		size++;
+	}
+
+	/**
+	 * Appends the result of a container operation, dropping it if empty and picking the most
+	 * compact representation.
+	 *
+	 * @param key - High 16 bits of the values in the container.
+	 * @param bitmap - Resulting bits.
+	 * @param cardinality - Number of values in the result.
+	 */
+	private void appendResult(char key, long[] bitmap, int cardinality) {
+		if (cardinality == 0)
+			return;
+		if (cardinality <= ARRAY_LIMIT)
+			appendContainer(key, toArray(bitmap, cardinality), null, cardinality);
+		else
+			appendContainer(key, null, bitmap, cardinality);
+	}
+
+	/**
+	 * Converts an array container to a bitmap container.
+	 *
+	 * @param array - Sorted low 16 bits.
+	 * @param cardinality - Number of values in the array.
+	 * @return Bitmap container.
+	 */
+	private static long[] toBitmap(char[] array, int cardinality) {
+		long[] bitmap = new long[BITMAP_WORDS];
+		for (int i = 0; i < cardinality; i++)
+			bitmap[array[i] >>> 6] |= 1L << array[i];
+		return bitmap;
+	}
+
+	/**
+	 * Converts a bitmap container to an array container.
+	 *
+	 * @param bitmap - Bitmap container.
+	 * @param cardinality - Number of bits set in the bitmap.
+	 * @return Sorted low 16 bits.
+	 */
+	private static char[] toArray(long[] bitmap, int cardinality) {
+		char[] array = new char[cardinality];
+		int count = 0;
+		for (int word = 0; word < BITMAP_WORDS; word++) {
+			long bits = bitmap[word];
+			while (bits != 0) {
+				array[count++] = (char) ((word << 6) + Long.numberOfTrailingZeros(bits));
+				bits &= bits - 1;
+			}
+		}
+		return array;
+	}
+
+	/**
+	 * Gets the bits of a container, converting an array container on the fly.
+	 *
+	 * @param index - Container index.
+	 * @return Bitmap of the container (must not be modified if it belongs to the container).
+	 */
+	private long[] bitsOf(int index) {
+		return bitmaps[index] != null ? bitmaps[index] : toBitmap(arrays[index], cardinalities[index]);
+	}
+
+	/**
+	 * Checks whether a value is in the bitmap.
+	 *
+	 * @param value - Value to look up.
+	 * @return True if the value is present, false otherwise.
+	 */
+	public boolean contains(int value) {
+		if (value < 0)
+			return false;
+		int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+		if (index < 0)
+			return false;
+		char low = (char) value;
+		if (arrays[index] != null)
+			return Arrays.binarySearch(arrays[index], 0, cardinalities[index], low) >= 0;
+		return (bitmaps[index][low >>> 6] & (1L << low)) != 0;
+	}
+
+	/**
+	 * Gets the number of values in the bitmap.
+	 *
+	 * @return Cardinality.
+	 */
+	public int cardinality() {
+		int total = 0;
+		for (int i = 0; i < size; i++)
+			total += cardinalities[i];
+		return total;
+	}
+
+	/**
+	 * Checks whether the bitmap has no values.
+	 *
+	 * @return True if the bitmap is empty, false otherwise.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Visits every value in increasing order.
+	 *
+	 * @param action - Receives each value.
+	 */
+	public void forEach(IntConsumer action) {
+		for (int i = 0; i < size; i++) {
+			int high = keys[i] << 16;
+			if (arrays[i] != null) {
+				char[] array = arrays[i];
+				for (int j = 0; j < cardinalities[i]; j++)
+					action.accept(high | array[j]);
+			} else {
+				long[] bitmap = bitmaps[i];
+				for (int word = 0; word < BITMAP_WORDS; word++) {
+					long bits = bitmap[word];
+					while (bits != 0) {
+						action.accept(high | (word << 6) + Long.numberOfTrailingZeros(bits));
+						bits &= bits - 1;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets every value in increasing order.
+	 *
+	 * @return Array of values.
+	 */
+	public int[] toArray() {
+		final int[] values = new int[cardinality()];
+		forEach(new IntConsumer() {
+			private int count;
+
+			@Override
+			public void accept(int value) {
+				values[count++] = value;
+			}
+		});
+		return values;
+	}
+
+	/**
+	 * Copies the bitmap.
+	 *
+	 * @return New bitmap with the same values, sharing no containers with this one.
+	 */
+	public CompressedBitmap copy() {
+		CompressedBitmap result = new CompressedBitmap();
+		for (int i = 0; i < size; i++)
+			result.copyContainer(this, i);
+		return result;
+	}
+
+	/**
+	 * Intersects two bitmaps.
+	 *
+	 * @param first - First bitmap.
+	 * @param second - Second bitmap.
+	 * @return Values present in both bitmaps.
+	 */
+	public static CompressedBitmap and(CompressedBitmap first, CompressedBitmap second) {
+		CompressedBitmap result = new CompressedBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < first.size && j < second.size) {
+			if (first.keys[i] < second.keys[j]) {
+				i++;
+			} else if (first.keys[i] > second.keys[j]) {
+				j++;
+			} else {
+				if (first.arrays[i] != null && second.arrays[j] != null)
+					result.intersectArrays(first.keys[i], first.arrays[i], first.cardinalities[i],
+							second.arrays[j], second.cardinalities[j]);
+				else if (first.arrays[i] != null)
+					result.filterArray(first.keys[i], first.arrays[i], first.cardinalities[i],
+							second.bitmaps[j], true);
+				else if (second.arrays[j] != null)
+					result.filterArray(first.keys[i], second.arrays[j], second.cardinalities[j],
+							first.bitmaps[i], true);
+				else
+					result.combineBitmaps(first.keys[i], first.bitmaps[i], second.bitmaps[j], Op.AND);
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Unites two bitmaps.
+	 *
+	 * @param first - First bitmap.
+	 * @param second - Second bitmap.
+	 * @return Values present in either bitmap.
+	 */
+	public static CompressedBitmap or(CompressedBitmap first, CompressedBitmap second) {
+		CompressedBitmap result = new CompressedBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < first.size || j < second.size) {
+			if (j == second.size || (i < first.size && first.keys[i] < second.keys[j])) {
+				result.copyContainer(first, i++);
+			} else if (i == first.size || first.keys[i] > second.keys[j]) {
+				result.copyContainer(second, j++);
+			} else {
+				result.combineBitmaps(first.keys[i], first.bitsOf(i), second.bitsOf(j), Op.OR);
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Subtracts one bitmap from another.
+	 *
+	 * @param first - Bitmap to subtract from.
+	 * @param second - Bitmap of values to remove.
+	 * @return Values present in the first bitmap but not in the second.
+	 */
+	public static CompressedBitmap andNot(CompressedBitmap first, CompressedBitmap second) {
+		CompressedBitmap result = new CompressedBitmap();
+		int j = 0;
+		for (int i = 0; i < first.size; i++) {
+			while (j < second.size && second.keys[j] < first.keys[i])
+				j++;
+			if (j == second.size || second.keys[j] != first.keys[i])
+				result.copyContainer(first, i);
+			else if (first.arrays[i] != null)
+				result.filterArray(first.keys[i], first.arrays[i], first.cardinalities[i],
+						second.bitsOf(j), false);
+			else
+				result.combineBitmaps(first.keys[i], first.bitmaps[i], second.bitsOf(j), Op.AND_NOT);
+		}
+		return result;
+	}
+
+	/**
+	 * Identifies the word-wise operation used to combine two bitmap containers.
+	 */
+	private static enum Op { AND, OR, AND_NOT }
+
+	/**
+	 * Appends a copy of a container from another bitmap.
+	 *
+	 * @param source - Bitmap holding the container.
+	 * @param index - Container index within the source.
+	 */
+	private void copyContainer(CompressedBitmap source, int index) {
+		int cardinality = source.cardinalities[index];
+		if (source.arrays[index] != null)
+			appendContainer(source.keys[index], Arrays.copyOf(source.arrays[index], cardinality),
+					null, cardinality);
+		else
+			appendContainer(source.keys[index], null, source.bitmaps[index].clone(), cardinality);
+	}
+
+	/**
+	 * Appends the intersection of two array containers.
+	 */
+	private void intersectArrays(char key, char[] first, int firstCount, char[] second,
+			int secondCount) {
+		char[] array = new char[Math.min(firstCount, secondCount)];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < firstCount && j < secondCount) {
+			if (first[i] < second[j])
+				i++;
+			else if (first[i] > second[j])
+				j++;
+			else {
+				array[count++] = first[i];
+				i++;
+				j++;
+			}
+		}
+		if (count > 0)
+			appendContainer(key, array, null, count);
+	}
+
+	/**
+	 * Appends the values of an array container that are present (or absent) in a bitmap.
+	 */
+	private void filterArray(char key, char[] array, int arrayCount, long[] bitmap, boolean keep) {
+		char[] filtered = new char[arrayCount];
+		int count = 0;
+		for (int i = 0; i < arrayCount; i++) {
+			char low = array[i];
+			if (((bitmap[low >>> 6] & (1L << low)) != 0) == keep)
+				filtered[count++] = low;
+		}
+		if (count > 0)
+			appendContainer(key, filtered, null, count);
+	}
+
+	/**
+	 * Appends the word-wise combination of two bitmap containers.
+	 */
+	private void combineBitmaps(char key, long[] first, long[] second, Op op) {
+		long[] bitmap = new long[BITMAP_WORDS];
+		int cardinality = 0;
+		for (int word = 0; word < BITMAP_WORDS; word++) {
+			long bits;
+			switch (op) {
+				case AND :
+					bits = first[word] & second[word];
+					break;
+				case OR :
+					bits = first[word] | second[word];
+					break;
+				default :
+					bits = first[word] & ~second[word];
+					break;
+			}
+			bitmap[word] = bits;
+			cardinality += Long.bitCount(bits);
+		}
+		appendResult(key, bitmap, cardinality);
+	}
+}
@@ -0,0 +1,458 @@
+package main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Scores every game file of a directory on a work-stealing pool. Each file is split into chunks
+ * of roughly the same size, cut on line boundaries, and every chunk is scored as its own task,
+ * so that a few huge files are spread over every core instead of keeping a single thread busy
+ * while the others sit idle. Only a few chunks per thread are scored ahead of the one being
+ * written, so the results held in memory do not grow with the size of the file.
+ *
+ * Every input file gets an output file with one result per line (the total score, or "error"
+ * for an invalid line), in the same order as its input lines and with the same rules as
+ * {@link ScoringPipeline}. A {@link Summary} of the counts, errors and throughput is returned
+ * once the whole directory has been ingested.
+ *
+ * @author Roger Delacruz
+ */
+public class DirectoryIngester {
+
+	/** Suffix appended to the name of an input file to get the name of its output file. **/
+	public static final String OUTPUT_SUFFIX = ".scores";
+
+	/** Default size of the chunks large files are split into. **/
+	public static final long DEFAULT_CHUNK_SIZE = 8 << 20;
+
+	/** Size of the buffer used to read a chunk. **/
+	private static final int READ_BUFFER_SIZE = 1 << 16;
+
+	/** Number of chunks of a file scored ahead of the one being written, per thread. **/
+	private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+
+	/* Constants should be place before this line */
+
+	/**
+	 * Counts, errors and throughput of a directory ingestion.
+	 */
+	public static final class Summary {
+		/** Number of files scored. **/
+		private int files;
+
+		/** Files that could not be read or written, with the reason. **/
+		private final List<String> failedFiles = new ArrayList<String>();
+
+		/** Number of lines scored. **/
+		private long lines;
+
+		/** Number of invalid lines. **/
+		private long invalidLines;
+
+		/** Number of bytes read. **/
+		private long bytes;
+
+		/** Time taken by the ingestion, in nanoseconds. **/
+		private long nanos;
+
+		/**
+		 * Gets the number of files scored successfully.
+		 *
+		 * @return Number of files.
+		 */
+		public int getFiles() {
+			return files;
+		}
+
+		/**
+		 * Gets the files that could not be read or written, each with the reason.
+		 *
+		 * @return Failed files.
+		 */
+		public List<String> getFailedFiles() {
+			return Collections.unmodifiableList(failedFiles);
+		}
+
+		/**
+		 * Gets the number of lines scored, valid or not.
+		 *
+		 * @return Number of lines.
+		 */
+		public long getLines() {
+			return lines;
+		}
+
+		/**
+		 * Gets the number of lines that were not a valid game.
+		 *
+		 * @return Number of invalid lines.
+		 */
+		public long getInvalidLines() {
+			return invalidLines;
+		}
+
+		/**
+		 * Gets the number of bytes read from the input files.
+		 *
+		 * @return Number of bytes.
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * Gets the time taken by the ingestion.
+		 *
+		 * @return Elapsed time, in nanoseconds.
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * Gets the number of lines scored per second.
+		 *
+		 * @return Lines per second.
+		 */
+		public double getLinesPerSecond() {
+			return nanos == 0 ? 0 : lines * 1e9 / nanos;
+		}
+
+		/**
+		 * Gets the number of megabytes read per second.
+		 *
+		 * @return Megabytes per second.
+		 */
+		public double getMegabytesPerSecond() {
+			return nanos == 0 ? 0 : bytes * 1e9 / nanos / (1 << 20);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append(String.format("Files: %d scored, %d failed%n", files, failedFiles.size()));
+			builder.append(String.format("Lines: %d scored, %d invalid%n", lines, invalidLines));
+			builder.append(String.format("Time: %.3f s (%.0f lines/s, %.1f MB/s)", nanos / 1e9,
+					getLinesPerSecond(), getMegabytesPerSecond()));
+			for (String failure : failedFiles)
+				builder.append(String.format("%nFailed: %s", failure));
+			return builder.toString();
+		}
+	}
+
+	/**
+	 * Scores the lines starting within a byte range of a file. A line belongs to the chunk its
+	 * first byte is in, so the chunk skips the end of a line started by the chunk before it, and
+	 * reads past its end to finish its own last line.
+	 */
+	private static final class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/** Channel of the input file, shared by every chunk of the file. **/
+		private final FileChannel channel;
+
+		/** Position of the first byte of the chunk. **/
+		private final long start;
+
+		/** Position after the last byte of the chunk. **/
+		private final long end;
+
+		/** Results of the lines, one per line. **/
+		private ByteArrayOutputStream output;
+
+		/** Number of lines scored. **/
+		private long lines;
+
+		/** Number of invalid lines. **/
+		private long invalidLines;
+
+		/**
+		 * Initializes the chunk.
+		 *
+		 * @param channel - Channel of the input file.
+		 * @param start - Position of the first byte of the chunk.
+		 * @param end - Position after the last byte of the chunk.
+		 */
+		private ChunkTask(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				scoreLines();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * Reads the chunk and scores its lines.
+		 *
+		 * @throws IOException The input file could not be read.
+		 */
+		private void scoreLines() throws IOException {
+			output = new ByteArrayOutputStream((int) Math.min(end - start, 1 << 20) / 4 + 16);
+			ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+			byte[] digits = new byte[11];
+
+			// Skips through the end of the line started by the previous chunk
+			long position = start > 0 ? start - 1 : 0;
+			boolean skipping = start > 0;
+			long lineStart = start;
+			int state = PackedGame.NEW_GAME;
+			boolean valid = true;
+			boolean inLine = false;
+
+			while (true) {
+				buffer.clear();
+				int count = channel.read(buffer, position);
+				if (count <= 0)
+					break;
+				byte[] array = buffer.array();
+				for (int i = 0; i < count; i++, position++) {
+					byte c = array[i];
+					if (skipping) {
+						if (position >= end)
+							return;		// The chunk is inside a line started before it
+						if (c == '\n') {
+							skipping = false;
+							lineStart = position + 1;
+						}
+						continue;
+					}
+					if (lineStart >= end)
+						return;
+					if (c == '\n') {
+						writeResult(valid ? PackedGame.total(state) : -1, digits);
+						state = PackedGame.NEW_GAME;
+						valid = true;
+						inLine = false;
+						lineStart = position + 1;
+					} else if (c != '\r' && c != ' ' && c != '\t') {
+						inLine = true;
+						if (valid) {
+							try {
+								state = PackedGame.symbol(state, (char) c);
+							} catch (IllegalStateException | IllegalArgumentException e) {
+								valid = false;
+							}
+						}
+					}
+				}
+			}
+
+			// Last line of the file may not end with a line break
+			if (!skipping && inLine && lineStart < end)
+				writeResult(valid ? PackedGame.total(state) : -1, digits);
+		}
+
+		/**
+		 * Writes the result of a line.
+		 *
+		 * @param score - Total score of the line, or -1 if it is invalid.
+		 * @param digits - Scratch buffer for the digits.
+		 */
+		private void writeResult(int score, byte[] digits) {
+			lines++;
+			if (score < 0) {
+				invalidLines++;
+				for (int i = 0; i < ScoringPipeline.ERROR.length(); i++)
+					output.write(ScoringPipeline.ERROR.charAt(i));
+			} else {
+				int position = digits.length;
+				do {
+					digits[--position] = (byte) ('0' + score % 10);
+					score /= 10;
+				} while (score > 0);
+				output.write(digits, position, digits.length - position);
+			}
+			output.write('\n');
+		}
+	}
+
+	/**
+	 * Scores a whole file, by forking one task per chunk and writing their results in order. A
+	 * chunk is only forked once the number of chunks scored ahead of the one being written is
+	 * under the limit.
+	 */
+	private final class FileTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/** Input file. **/
+		private final Path input;
+
+		/** Output file. **/
+		private final Path output;
+
+		/** Size of the input file, in bytes. **/
+		private final long size;
+
+		/** Chunks forked and not written yet, in file order. **/
+		private final ArrayDeque<ChunkTask> chunks = new ArrayDeque<ChunkTask>();
+
+		/** Number of lines scored. **/
+		private long lines;
+
+		/** Number of invalid lines. **/
+		private long invalidLines;
+
+		/** Reason the file could not be scored, if any. **/
+		private String failure;
+
+		/**
+		 * Initializes the task.
+		 *
+		 * @param input - Input file.
+		 * @param output - Output file.
+		 * @param size - Size of the input file, in bytes.
+		 */
+		private FileTask(Path input, Path output, long size) {
+			this.input = input;
+			this.output = output;
+			this.size = size;
+		}
+
+		@Override
+		protected void compute() {
+			try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+					OutputStream out = Files.newOutputStream(output)) {
+				int window = parallelism * CHUNKS_IN_FLIGHT_PER_THREAD;
+				long next = 0;
+				while (next < size || !chunks.isEmpty()) {
+					// Keeps the window full, the chunks ahead are left to be stolen
+					while (next < size && chunks.size() < window) {
+						ChunkTask chunk = new ChunkTask(channel, next, Math.min(size, next + chunkSize));
+						chunk.fork();
+						chunks.add(chunk);
+						next += chunkSize;
+					}
+
+					// Runs the oldest chunk here if it has not been stolen yet
+					ChunkTask chunk = chunks.peek();
+					chunk.join();
+					chunks.poll();
+					chunk.output.writeTo(out);
+					lines += chunk.lines;
+					invalidLines += chunk.invalidLines;
+				}
+			} catch (IOException | UncheckedIOException e) {
+				failure = input.getFileName() + ": " + e;
+				for (ChunkTask chunk : chunks)
+					chunk.quietlyJoin();
+				try {
+					Files.deleteIfExists(output);	// No partial results
+				} catch (IOException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+			}
+		}
+	}
+
+	/** Number of threads of the pool. **/
+	private final int parallelism;
+
+	/** Size of the chunks large files are split into. **/
+	private final long chunkSize;
+
+	/**
+	 * Initializes the ingester with one thread per processor and the default chunk size.
+	 */
+	public DirectoryIngester() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Initializes the ingester.
+	 *
+	 * @param parallelism - Number of threads of the work-stealing pool.
+	 * @param chunkSize - Size of the chunks large files are split into, in bytes.
+	 */
+	public DirectoryIngester(int parallelism, long chunkSize) {
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("There must be at least one thread.");
+		if (chunkSize <= 0)
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		this.parallelism = parallelism;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Scores every regular file of a directory, writing the results of each file to a file of
+	 * the output directory named after it with the ".scores" suffix. A file that cannot be read or
+	 * written does not stop the others, and is reported in the summary instead.
+	 *
+	 * @param inputDir - Directory of game files, one game per line.
+	 * @param outputDir - Directory receiving the results, which is created if needed.
+	 * @return Summary of the ingestion.
+	 * @throws IOException The input directory could not be listed or the output directory
+	 * could not be created.
+	 */
+	public Summary ingest(Path inputDir, Path outputDir) throws IOException {
+		if (Files.isSameFile(inputDir, Files.createDirectories(outputDir)))
+			throw new IllegalArgumentException("Output directory must differ from input directory.");
+		long begin = System.nanoTime();
+
+		final List<FileTask> tasks = new ArrayList<FileTask>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(inputDir)) {
+			for (Path file : stream)
+				if (Files.isRegularFile(file))
+					tasks.add(new FileTask(file, outputDir.resolve(file.getFileName() + OUTPUT_SUFFIX),
+							Files.size(file)));
+		}
+
+		// Largest files first, so that their chunks are spread out before the small files
+		Collections.sort(tasks, new Comparator<FileTask>() {
+			@Override
+			public int compare(FileTask a, FileTask b) {
+				return Long.compare(b.size, a.size);
+			}
+		});
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					ForkJoinTask.invokeAll(tasks);
+				}
+			});
+		} finally {
+			pool.shutdown();
+		}
+
+		Summary summary = new Summary();
+		for (FileTask task : tasks) {
+			if (task.failure != null) {
+				summary.failedFiles.add(task.failure);
+				continue;
+			}
+			summary.files++;
+			summary.lines += task.lines;
+			summary.invalidLines += task.invalidLines;
+			summary.bytes += task.size;
+		}
+		summary.nanos = System.nanoTime() - begin;
+		return summary;
+	}
+}
@@ -70,11 +70,10 @@ public class Frame  {
 	 * @throws IllegalStateException Spare can only be performed on a frame with one roll.
 	 */
 	public void scoreSpare() throws IllegalStateException {
-		status = Status.SPARE;
 		if (points.size() != 1)
 			throw new IllegalStateException("There should be one roll prior to a spare.");
-		else
-			points.add(NUM_OF_PINS - points.get(0));	// Remaining pins for second roll
+		status = Status.SPARE;
+		points.add(NUM_OF_PINS - points.get(0));	// Remaining pins for second roll
 	}
 	
 	/**
@@ -84,11 +83,10 @@ public class Frame  {
 	 * @throws IllegalStateException Strike can only be performed on empty frame.
 	 */
 	public void scoreStrike() throws IllegalStateException {
-		status = Status.STRIKE;
 		if (points.size() != 0)
 			throw new IllegalStateException("There should zero rolls prior to a strike.");
-		else
-			points.add(NUM_OF_PINS);	// Strike = all pins
+		status = Status.STRIKE;
+		points.add(NUM_OF_PINS);	// Strike = all pins
 	}
 	
 	/**
@@ -99,13 +97,12 @@ public class Frame  {
 	 * has been exceeded.
 	 */
 	public void updateScore(int num) throws IllegalStateException {
+		if (points.size() == 1 && points.get(0) + num > NUM_OF_PINS)
+			throw new IllegalStateException("Only " + NUM_OF_PINS 
+					+ " pins can be knocked down in a single frame.");
 		points.add(num);
-		if (points.size() >= 2) {
-			if (points.get(0) + points.get(1) > NUM_OF_PINS)
-				throw new IllegalStateException("Only " + NUM_OF_PINS 
-						+ " pins can be knocked down in a single frame.");
+		if (points.size() >= 2)
 			status = Status.COMPLETE;
-		}
 	}
 	
 	/**
@@ -117,6 +114,16 @@ public class Frame  {
 		return points;
 	}
 	
+	/**
+	 * Gets points scored by a single roll within the current Frame, without allocating.
+	 * 
+	 * @param roll - Index of the roll within the frame.
+	 * @return Points scored by the roll.
+	 */
+	public int getPoint(int roll) {
+		return getPoints().get(roll);
+	}
+	
 	/**
 	 * Calculates bonus points obtained from next frame, assuming that the current
 	 * frame had a spare scored.
@@ -139,26 +146,32 @@ public class Frame  {
 	 * @return Bonus points from strike.
 	 */
 	public int getStrikeBonus(List<Frame> nextFrames) {
-		if (isStrike() && nextFrames != null) {
-			int bonus = 0;
-			int rolls = 0;
-			
-			// Gets bonus points from first two rolls (while frames last)
-			for (Frame frame : nextFrames) {
-				for (Integer rollPoints : frame.getPoints()) {
-					bonus += rollPoints;
-					rolls += 1;
-					if (rolls >= 2)
-						break;
-				}
-				if (rolls >= 2)
-					break;
-			}
-			
-			return bonus;
-		} else {
+		if (nextFrames == null)
 			return 0;
-		}
+		return getStrikeBonus(nextFrames.size() > 0 ? nextFrames.get(0) : null,
+				nextFrames.size() > 1 ? nextFrames.get(1) : null);
+	}
+	
+	/**
+	 * Calculates bonus points obtained from the next two frames, assuming that the current
+	 * frame had a strike scored. Unlike the list version, no list has to be built for it.
+	 * 
+	 * @param nextFrame - Next frame (may be null).
+	 * @param secondFrame - Frame after the next one (may be null).
+	 * @return Bonus points from strike.
+	 */
+	public int getStrikeBonus(Frame nextFrame, Frame secondFrame) {
+		if (!isStrike() || nextFrame == null)
+			return 0;
+		
+		// Gets bonus points from first two rolls (while frames last)
+		int bonus = 0;
+		int rolls = Math.min(2, nextFrame.getRolls());
+		for (int i = 0; i < rolls; i++)
+			bonus += nextFrame.getPoint(i);
+		if (rolls < 2 && secondFrame != null && secondFrame.getRolls() > 0)
+			bonus += secondFrame.getPoint(0);
+		return bonus;
 	}
 	
 	/**
@@ -179,6 +192,15 @@ public class Frame  {
 		return false;
 	}
 	
+	/**
+	 * Checks whether the frame can no longer accept rolls.
+	 * 
+	 * @return True if the frame is no longer incomplete, false otherwise.
+	 */
+	public boolean isFinished() {
+		return !isIncomplete();
+	}
+	
 	/**
 	 * Encapsulates code for final frame, which may have up to two bonus frames.
 	 */
@@ -186,6 +208,9 @@ public class Frame  {
 		/** Bonus frames associated with final frame - up to two. **/
 		private List<Frame> bonusFrames;
 		
+		/** Points of the final frame followed by the points of its bonus frames. **/
+		private List<Integer> allPoints;
+		
 		/** New variable for final frame to determine whether frame is finished. **/
 		private boolean finished;
 		
@@ -196,6 +221,7 @@ public class Frame  {
 			super();
 			finished = false;
 			bonusFrames = new ArrayList<Frame>();
+			allPoints = new ArrayList<Integer>(3);	// Three rolls at most
 		}
 		
 		/**
@@ -279,11 +305,13 @@ public class Frame  {
 		@Override
 		public void scoreSpare() throws IllegalStateException {
 			if (!finished) {
-				if (isIncomplete())
+				if (isIncomplete()) {
 					super.scoreSpare();
-				else {
+					recordLatestRoll(super.getPoints());
+				} else {
 					Frame frame = bonusFrames.get(bonusFrames.size() - 1);
 					frame.scoreSpare();
+					recordLatestRoll(frame.getPoints());
 				}
 				prepareNextFrame();
 			} else {
@@ -300,11 +328,13 @@ public class Frame  {
 		@Override
 		public void scoreStrike() {
 			if (!finished) {
-				if (isIncomplete())
+				if (isIncomplete()) {
 					super.scoreStrike();
-				else {
+					recordLatestRoll(super.getPoints());
+				} else {
 					Frame frame = bonusFrames.get(bonusFrames.size() - 1);
 					frame.scoreStrike();
+					recordLatestRoll(frame.getPoints());
 				}
 				prepareNextFrame();
 			} else {
@@ -321,11 +351,13 @@ public class Frame  {
 		@Override
 		public void updateScore(int num) {
 			if (!finished) {
-				if (isIncomplete())
+				if (isIncomplete()) {
 					super.updateScore(num);
-				else {
+					recordLatestRoll(super.getPoints());
+				} else {
 					Frame frame = bonusFrames.get(bonusFrames.size() - 1);
 					frame.updateScore(num);
+					recordLatestRoll(frame.getPoints());
 				}
 				prepareNextFrame();
 			} else {
@@ -334,17 +366,23 @@ public class Frame  {
 		}
 		
 		/**
-		 * Gets list of points scored within the current Frame, including bonus rolls.
+		 * Appends the latest roll of the main or bonus frame to the combined points.
+		 * 
+		 * @param framePoints - Points of the frame that just had a roll.
+		 */
+		private void recordLatestRoll(List<Integer> framePoints) {
+			allPoints.add(framePoints.get(framePoints.size() - 1));
+		}
+		
+		/**
+		 * Gets list of points scored within the current Frame, including bonus rolls. The list
+		 * is kept up to date as rolls are made, so no list is built by this call.
 		 * 
 		 * @return List of integer values scored.
 		 */
 		@Override
 		public List<Integer> getPoints() {
-			List<Integer> totalPoints = new ArrayList<Integer>();
-			totalPoints.addAll(super.getPoints());
-			for (Frame frame : bonusFrames)
-				totalPoints.addAll(frame.getPoints());
-			return totalPoints;
+			return allPoints;
 		}
 		
 		/**
@@ -369,6 +407,18 @@ public class Frame  {
 			return 0;
 		}
 		
+		/**
+		 * Final frame doesn't calculate bonus points from future frames.
+		 * 
+		 * @param nextFrame - Next frame (will be ignored).
+		 * @param secondFrame - Frame after the next one (will be ignored).
+		 * @return 0.
+		 */
+		@Override
+		public int getStrikeBonus(Frame nextFrame, Frame secondFrame) {
+			return 0;
+		}
+		
 		/**
 		 * Checks whether current frame is final frame of the game.
 		 * 
@@ -378,5 +428,15 @@ public class Frame  {
 		public boolean isFinalFrame() {
 			return true;
 		}
+		
+		/**
+		 * Checks whether the final frame, including its bonus rolls, can no longer accept rolls.
+		 * 
+		 * @return True if the final frame is finished, false otherwise.
+		 */
+		@Override
+		public boolean isFinished() {
+			return finished;
+		}
 	}
 }
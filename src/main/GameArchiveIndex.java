@@ -0,0 +1,222 @@
+package main;
+
+/**
+ * Index of an archive of scored games, answering pattern queries such as "a turkey in frames 8
+ * to 10" or "over 250 with an open frame" without rescanning the archive.
+ *
+ * Every game added to the index gets the next game id, starting at 0. Lines are scored once at
+ * ingest, and the id of the game is added to one compressed bitmap per frame outcome (strike,
+ * spare or open) and to the bitmap of its total score. Queries return bitmaps of game ids, which
+ * can be combined further with {@link CompressedBitmap#and}, {@link CompressedBitmap#or} and
+ * {@link CompressedBitmap#andNot}. Every query returns a new bitmap owned by the caller, so
+ * adding values to a result never changes the index.
+ *
+ * @author Roger Delacruz
+ */
+public class GameArchiveIndex {
+
+	/** Number of frames in a game. **/
+	private static final int FRAMES = 10;
+
+	/** Highest possible score of a game. **/
+	private static final int MAX_SCORE = 300;
+
+	/* Constants should be place before this line */
+
+	/** Games with a strike in each frame. **/
+	private final CompressedBitmap[] strikes;
+
+	/** Games with a spare in each frame. **/
+	private final CompressedBitmap[] spares;
+
+	/** Games with an open frame (neither spare nor strike) in each frame. **/
+	private final CompressedBitmap[] opens;
+
+	/** Games by total score. **/
+	private final CompressedBitmap[] scores;
+
+	/** Every game in the index. **/
+	private final CompressedBitmap all;
+
+	/** Id given to the next game added. **/
+	private int nextId;
+
+	/**
+	 * Initializes an empty index.
+	 */
+	public GameArchiveIndex() {
+		strikes = newBitmaps(FRAMES);
+		spares = newBitmaps(FRAMES);
+		opens = newBitmaps(FRAMES);
+		scores = newBitmaps(MAX_SCORE + 1);
+		all = new CompressedBitmap();
+	}
+
+	/**
+	 * Creates an array of empty bitmaps.
+	 *
+	 * @param count - Number of bitmaps.
+	 * @return Empty bitmaps.
+	 */
+	private static CompressedBitmap[] newBitmaps(int count) {
+		CompressedBitmap[] bitmaps = new CompressedBitmap[count];
+		for (int i = 0; i < count; i++)
+			bitmaps[i] = new CompressedBitmap();
+		return bitmaps;
+	}
+
+	/**
+	 * Scores a line and adds it to the index. Frames that were not finished are neither strikes,
+	 * spares nor open frames.
+	 *
+	 * @param line - Sequence of roll symbols for a single game.
+	 * @return Id of the game.
+	 * @throws IllegalStateException Some roll cannot be applied to its frame.
+	 * @throws IllegalArgumentException Some character is not a valid roll symbol.
+	 */
+	public int add(CharSequence line) throws IllegalStateException, IllegalArgumentException {
+		// Scores the line first, so that an invalid line leaves the index untouched
+		int state = PackedGame.NEW_GAME;
+		int strikeFrames = 0;
+		int spareFrames = 0;
+		int closedFrames = 0;
+		for (int i = 0; i < line.length(); i++) {
+			char symbol = line.charAt(i);
+			int frame = PackedGame.frame(state);
+			int finalBalls = PackedGame.finalFrameBalls(state);
+			state = PackedGame.symbol(state, symbol);
+
+			// Outcome of a frame is decided by its first two balls
+			if (finalBalls < 2) {
+				if (symbol == 'X' && finalBalls == 0)
+					strikeFrames |= 1 << frame;
+				else if (symbol == '/')
+					spareFrames |= 1 << frame;
+			}
+			if (PackedGame.isFinished(state))
+				closedFrames = (1 << FRAMES) - 1;
+			else
+				closedFrames = (1 << PackedGame.frame(state)) - 1;
+		}
+		int openFrames = closedFrames & ~strikeFrames & ~spareFrames;
+
+		int id = nextId++;
+		for (int frame = 0; frame < FRAMES; frame++) {
+			int bit = 1 << frame;
+			if ((strikeFrames & bit) != 0)
+				strikes[frame].add(id);
+			else if ((spareFrames & bit) != 0)
+				spares[frame].add(id);
+			else if ((openFrames & bit) != 0)
+				opens[frame].add(id);
+		}
+		scores[PackedGame.total(state)].add(id);
+		all.add(id);
+		return id;
+	}
+
+	/**
+	 * Checks a frame number given to a query.
+	 *
+	 * @param frame - Frame number (1 to 10).
+	 * @return Frame index (0 to 9).
+	 */
+	private static int frameIndex(int frame) {
+		if (frame < 1 || frame > FRAMES)
+			throw new IllegalArgumentException("Frame must be between 1 and " + FRAMES + ": " + frame);
+		return frame - 1;
+	}
+
+	/**
+	 * Gets the games with a strike in the given frame.
+	 *
+	 * @param frame - Frame number (1 to 10).
+	 * @return Game ids.
+	 */
+	public CompressedBitmap strikes(int frame) {
+		return strikes[frameIndex(frame)].copy();
+	}
+
+	/**
+	 * Gets the games with a spare in the given frame.
+	 *
+	 * @param frame - Frame number (1 to 10).
+	 * @return Game ids.
+	 */
+	public CompressedBitmap spares(int frame) {
+		return spares[frameIndex(frame)].copy();
+	}
+
+	/**
+	 * Gets the games with an open frame in the given frame.
+	 *
+	 * @param frame - Frame number (1 to 10).
+	 * @return Game ids.
+	 */
+	public CompressedBitmap opens(int frame) {
+		return opens[frameIndex(frame)].copy();
+	}
+
+	/**
+	 * Gets the games with a strike in every frame of the given range (a turkey for three frames).
+	 *
+	 * @param from - First frame number (1 to 10).
+	 * @param to - Last frame number (1 to 10), not before the first one.
+	 * @return Game ids.
+	 */
+	public CompressedBitmap strikesInFrames(int from, int to) {
+		int first = frameIndex(from);
+		int last = frameIndex(to);
+		if (first > last)
+			throw new IllegalArgumentException("Frame range is reversed: " + from + " to " + to);
+		CompressedBitmap result = strikes[first].copy();
+		for (int frame = first + 1; frame <= last; frame++)
+			result = CompressedBitmap.and(result, strikes[frame]);
+		return result;
+	}
+
+	/**
+	 * Gets the games with at least one open frame.
+	 *
+	 * @return Game ids.
+	 */
+	public CompressedBitmap anyOpen() {
+		CompressedBitmap result = new CompressedBitmap();
+		for (int frame = 0; frame < FRAMES; frame++)
+			result = CompressedBitmap.or(result, opens[frame]);
+		return result;
+	}
+
+	/**
+	 * Gets the games whose total score is within the given range.
+	 *
+	 * @param min - Lowest score (inclusive).
+	 * @param max - Highest score (inclusive).
+	 * @return Game ids.
+	 */
+	public CompressedBitmap scores(int min, int max) {
+		CompressedBitmap result = new CompressedBitmap();
+		for (int score = Math.max(0, min); score <= Math.min(MAX_SCORE, max); score++)
+			if (!scores[score].isEmpty())
+				result = CompressedBitmap.or(result, scores[score]);
+		return result;
+	}
+
+	/**
+	 * Gets every game in the index.
+	 *
+	 * @return Game ids.
+	 */
+	public CompressedBitmap all() {
+		return all.copy();
+	}
+
+	/**
+	 * Gets the number of games in the index.
+	 *
+	 * @return Number of games.
+	 */
+	public int size() {
+		return nextId;
+	}
+}
@@ -0,0 +1,358 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Follows the log files lane controllers append roll symbols to, the way "tail -f" does. The
+ * directory is watched for changes, and only the bytes appended to a file since it was last read
+ * are read, from the offset reached so far. Every new roll is applied to the tracked game of the
+ * lane, and the score events it causes are sent to the sink, so the work done per change grows
+ * with the new data instead of with the length of the file.
+ *
+ * Log files are named after their lane ("lane7" or "lane7.log" for lane 7), other files such as
+ * rotated "lane7.log.1" copies are ignored. A lane is followed through one file at a time.
+ * Whitespace between roll symbols is skipped. A log is taken to have been rotated when it shrinks,
+ * or when it is deleted or renamed away and a new file takes its name; the rest of the old file is
+ * read first, then the log is followed again from its start with a new game.
+ *
+ * @author Roger Delacruz
+ */
+public class LaneLogFollower implements Closeable {
+
+	/** Pattern of lane log file names, capturing the lane id. **/
+	private static final Pattern LOG_NAME = Pattern.compile("lane(\\d+)(\\.log)?");
+
+	/** Size of the buffer appended bytes are read into. **/
+	private static final int READ_BUFFER_SIZE = 1 << 13;
+
+	/* Constants should be place before this line */
+
+	/**
+	 * Read position and game of a followed log file.
+	 */
+	private static final class LaneLog {
+		/** File name of the log within the directory. **/
+		private Path name;
+
+		/** Channel of the log file, null once the file is gone. **/
+		private FileChannel channel;
+
+		/** Key identifying the file the channel was opened on, null if unsupported. **/
+		private Object fileKey;
+
+		/** Offset of the first byte that has not been read yet. **/
+		private long offset;
+
+		/** Game being played on the lane. **/
+		private TrackedGame game;
+	}
+
+	/** Directory of the lane log files. **/
+	private final Path directory;
+
+	/** Receives the score events caused by new rolls. **/
+	private final Consumer<ScoreEvent> sink;
+
+	/** Watches the directory for created, modified and deleted files. **/
+	private final WatchService watcher;
+
+	/** Followed log files, by lane id. **/
+	private final Map<Integer, LaneLog> logs;
+
+	/** Buffer appended bytes are read into. **/
+	private final ByteBuffer buffer;
+
+	/** Thread following the files once started, if any. **/
+	private Thread thread;
+
+	/** Failure that stopped the following thread, if any. **/
+	private IOException failure;
+
+	/** Number of rolls applied. **/
+	private long rolls;
+
+	/** Number of rolls that could not be applied to their game. **/
+	private long rejectedRolls;
+
+	/**
+	 * Starts watching the directory and reads every lane log file already in it, so that the
+	 * games are up to date before the first change arrives.
+	 *
+	 * @param directory - Directory of the lane log files.
+	 * @param sink - Receives the score events caused by new rolls.
+	 * @throws IOException The directory could not be watched or a log file could not be read.
+	 */
+	public LaneLogFollower(Path directory, Consumer<ScoreEvent> sink) throws IOException {
+		this.directory = directory;
+		this.sink = sink;
+		logs = new HashMap<Integer, LaneLog>();
+		buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+		watcher = directory.getFileSystem().newWatchService();
+		directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+		// Registered before the scan, so that no append can fall between the two
+		scanDirectory();
+	}
+
+	/**
+	 * Reads the appended bytes of every lane log file in the directory, and closes the followed
+	 * logs whose file is gone.
+	 *
+	 * @return Number of rolls read.
+	 * @throws IOException A log file could not be read.
+	 */
+	private int scanDirectory() throws IOException {
+		int count = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream)
+				count += readAppended(file.getFileName());
+		}
+		for (LaneLog log : new ArrayList<LaneLog>(logs.values()))
+			if (log.channel != null)
+				count += readAppended(log.name);
+		return count;
+	}
+
+	/**
+	 * Reads the bytes appended to a log file since it was last read, and applies their rolls. A log
+	 * whose file has been deleted, renamed away or replaced is read to its end and closed first.
+	 *
+	 * @param name - File name within the directory.
+	 * @return Number of rolls read.
+	 * @throws IOException The log file could not be read.
+	 */
+	private int readAppended(Path name) throws IOException {
+		Matcher matcher = LOG_NAME.matcher(name.toString());
+		if (!matcher.matches())
+			return 0;
+
+		int lane = Integer.parseInt(matcher.group(1));
+		LaneLog log = logs.get(lane);
+		if (log != null && log.channel != null && !log.name.equals(name))
+			return 0;	// Lane is followed through its other file name
+
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(directory.resolve(name), BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			attributes = null;
+		}
+
+		int count = 0;
+		if (log != null && log.channel != null && (attributes == null
+				|| !attributes.isRegularFile() || !Objects.equals(log.fileKey, attributes.fileKey()))) {
+			// Rotated away, what was appended before is still read
+			count += readRolls(log);
+			log.channel.close();
+			log.channel = null;
+		}
+		if (attributes == null || !attributes.isRegularFile())
+			return count;
+
+		if (log == null) {
+			log = new LaneLog();
+			logs.put(lane, log);
+		}
+		if (log.channel == null) {
+			log.name = name;
+			log.channel = FileChannel.open(directory.resolve(name), StandardOpenOption.READ);
+			log.fileKey = attributes.fileKey();
+			log.offset = 0;
+			log.game = new TrackedGame(lane);
+		} else if (log.channel.size() < log.offset) {
+			// Truncated files are followed again from the start
+			log.offset = 0;
+			log.game = new TrackedGame(lane);
+		}
+		return count + readRolls(log);
+	}
+
+	/**
+	 * Reads the bytes appended to a followed log since it was last read, and applies their rolls.
+	 *
+	 * @param log - Followed log with an open channel.
+	 * @return Number of rolls read.
+	 * @throws IOException The log file could not be read.
+	 */
+	private int readRolls(LaneLog log) throws IOException {
+		int count = 0;
+		while (true) {
+			buffer.clear();
+			int read = log.channel.read(buffer, log.offset);
+			if (read <= 0)
+				break;
+			log.offset += read;
+			for (int i = 0; i < read; i++) {
+				char symbol = (char) buffer.get(i);
+				if (symbol == '\n' || symbol == '\r' || symbol == ' ' || symbol == '\t')
+					continue;
+				count++;
+				try {
+					log.game.roll(symbol, sink);
+				} catch (IllegalStateException | IllegalArgumentException e) {
+					rejectedRolls++;
+				}
+			}
+		}
+		rolls += count;
+		return count;
+	}
+
+	/**
+	 * Waits for the lane log files to change, then reads what was appended to every changed file.
+	 *
+	 * @param timeout - Longest time to wait for a change.
+	 * @param unit - Unit of the timeout.
+	 * @return Number of rolls read, 0 if nothing changed before the timeout.
+	 * @throws IOException A log file could not be read.
+	 * @throws InterruptedException The thread was interrupted while waiting.
+	 * @throws ClosedWatchServiceException The follower has been closed.
+	 */
+	public int poll(long timeout, TimeUnit unit) throws IOException, InterruptedException,
+			ClosedWatchServiceException {
+		WatchKey key = watcher.poll(timeout, unit);	// Games stay readable while waiting
+		synchronized (this) {
+			return readChanges(key);
+		}
+	}
+
+	/**
+	 * Reads what was appended to the files changed according to the given key, and to the files
+	 * of any other key already signalled.
+	 *
+	 * @param key - First signalled key, or null.
+	 * @return Number of rolls read.
+	 * @throws IOException A log file could not be read.
+	 */
+	private int readChanges(WatchKey key) throws IOException {
+		int count = 0;
+		while (key != null) {
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					// Some changes were lost, so every file is checked
+					count += scanDirectory();
+				} else {
+					count += readAppended((Path) event.context());
+				}
+			}
+			if (!key.reset())
+				throw new ClosedWatchServiceException();	// Directory is gone
+			key = watcher.poll();
+		}
+		return count;
+	}
+
+	/**
+	 * Starts following the lane log files on a background thread, until the follower is closed.
+	 * If a log file cannot be read, the thread stops, and the failure is thrown by
+	 * {@link #getGame} and {@link #close} so that stale games are not mistaken for live ones.
+	 */
+	public synchronized void start() {
+		if (thread != null)
+			throw new IllegalStateException("Follower has already been started.");
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					while (true)
+						poll(1, TimeUnit.SECONDS);
+				} catch (ClosedWatchServiceException | InterruptedException e) {
+					// Follower has been closed
+				} catch (IOException e) {
+					synchronized (LaneLogFollower.this) {
+						failure = e;
+					}
+				}
+			}
+		}, "lane-log-follower");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Gets the game currently being played on a lane.
+	 *
+	 * @param lane - Lane id.
+	 * @return Game on the lane, or null if the lane has no log file.
+	 * @throws UncheckedIOException The following thread has stopped on a log file it could not
+	 * read.
+	 */
+	public synchronized BowlingScore getGame(int lane) throws UncheckedIOException {
+		if (failure != null)
+			throw new UncheckedIOException("Lane logs are no longer followed.", failure);
+		LaneLog log = logs.get(lane);
+		return log == null ? null : log.game.getGame();
+	}
+
+	/**
+	 * Gets the number of rolls read from the log files.
+	 *
+	 * @return Number of rolls.
+	 */
+	public synchronized long getRolls() {
+		return rolls;
+	}
+
+	/**
+	 * Gets the number of rolls that could not be applied to the game of their lane.
+	 *
+	 * @return Number of rejected rolls.
+	 */
+	public synchronized long getRejectedRolls() {
+		return rejectedRolls;
+	}
+
+	/**
+	 * Stops watching the directory and closes every log file.
+	 *
+	 * @throws IOException A file could not be closed, or the following thread had stopped on a
+	 * log file it could not read.
+	 */
+	@Override
+	public void close() throws IOException {
+		watcher.close();
+		Thread following;
+		synchronized (this) {
+			following = thread;
+		}
+		if (following != null) {
+			try {
+				following.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		synchronized (this) {
+			for (LaneLog log : logs.values())
+				if (log.channel != null)
+					log.channel.close();
+			logs.clear();
+			if (failure != null)
+				throw new IOException("Lane logs stopped being followed.", failure);
+		}
+	}
+}
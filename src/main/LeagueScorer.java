@@ -0,0 +1,546 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Scores league nights: sessions of teams, whose bowlers each roll a few games, with a handicap
+ * based on their average. Sessions are read one at a time from a text input such as:
+ *
+ * <pre>
+ * # Comments and blank lines are ignored
+ * SESSION 2026-10-14
+ * TEAM Pin Pals
+ * BOWLER Homer 165 X7/9-X-88/-6XXX81 9-9-9-9-9-9-9-9-9-9- XXXXXXXXXXXX
+ * BOWLER Lenny 190 ...
+ * TEAM Holy Rollers
+ * ...
+ * </pre>
+ *
+ * A bowler line holds the name of the bowler (without whitespace), the average and one line of
+ * roll symbols per game. Every game is scored with the {@link BowlingScore} rules, through a
+ * shared {@link ScoreCache} since league nights repeat many lines. Series, handicap and team
+ * totals follow from the game scores.
+ *
+ * The bowlers of a session are scored in parallel on a work-stealing pool, and a few sessions are
+ * scored at once while the next ones are read. Only those sessions are held in memory, however
+ * long the season is, and they are handed to the sink in input order.
+ *
+ * @author Roger Delacruz
+ */
+public class LeagueScorer {
+
+	/** Default handicap basis (average the handicap brings bowlers up to). **/
+	public static final int DEFAULT_BASIS = 220;
+
+	/** Default handicap percentage. **/
+	public static final int DEFAULT_PERCENTAGE = 90;
+
+	/** Default number of sessions scored at once. **/
+	public static final int DEFAULT_SESSIONS_IN_FLIGHT = 8;
+
+	/** Score of a game whose line is invalid. **/
+	public static final int INVALID = -1;
+
+	/* Constants should be place before this line */
+
+	/**
+	 * A bowler of a team, with the games rolled in a session.
+	 */
+	public static final class Bowler {
+		/** Name of the bowler. **/
+		private final String name;
+
+		/** Average the handicap is based on. **/
+		private final int average;
+
+		/** Roll symbols of each game. **/
+		private final String[] lines;
+
+		/** Score of each game, or INVALID. **/
+		private final int[] games;
+
+		/** Handicap added to each game. **/
+		private int handicap;
+
+		/** Sum of the valid game scores. **/
+		private int series;
+
+		/**
+		 * Initializes the bowler.
+		 *
+		 * @param name - Name of the bowler.
+		 * @param average - Average the handicap is based on.
+		 * @param lines - Roll symbols of each game.
+		 */
+		private Bowler(String name, int average, String[] lines) {
+			this.name = name;
+			this.average = average;
+			this.lines = lines;
+			games = new int[lines.length];
+		}
+
+		/**
+		 * Gets the name of the bowler.
+		 *
+		 * @return Bowler name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the average the handicap is based on.
+		 *
+		 * @return Average.
+		 */
+		public int getAverage() {
+			return average;
+		}
+
+		/**
+		 * Gets the score of each game.
+		 *
+		 * @return Game scores, INVALID for a game whose line is invalid.
+		 */
+		public int[] getGames() {
+			return games.clone();
+		}
+
+		/**
+		 * Gets the handicap added to each game.
+		 *
+		 * @return Handicap per game.
+		 */
+		public int getHandicap() {
+			return handicap;
+		}
+
+		/**
+		 * Gets the sum of the valid game scores.
+		 *
+		 * @return Scratch series.
+		 */
+		public int getSeries() {
+			return series;
+		}
+
+		/**
+		 * Gets the series with the handicap added to every valid game.
+		 *
+		 * @return Handicap series.
+		 */
+		public int getHandicapSeries() {
+			int valid = 0;
+			for (int game : games)
+				if (game != INVALID)
+					valid++;
+			return series + handicap * valid;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder("BOWLER ").append(name).append(" games=");
+			for (int i = 0; i < games.length; i++) {
+				if (i > 0)
+					builder.append(',');
+				builder.append(games[i] == INVALID ? ScoringPipeline.ERROR : String.valueOf(games[i]));
+			}
+			return builder.append(" series=").append(series).append(" handicap=").append(handicap)
+					.append(" total=").append(getHandicapSeries()).toString();
+		}
+	}
+
+	/**
+	 * A team of a session.
+	 */
+	public static final class Team {
+		/** Name of the team. **/
+		private final String name;
+
+		/** Bowlers of the team. **/
+		private final List<Bowler> bowlers = new ArrayList<Bowler>();
+
+		/** Sum of the scratch series of the bowlers. **/
+		private int series;
+
+		/** Sum of the handicap series of the bowlers. **/
+		private int handicapSeries;
+
+		/**
+		 * Initializes the team.
+		 *
+		 * @param name - Name of the team.
+		 */
+		private Team(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Gets the name of the team.
+		 *
+		 * @return Team name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the bowlers of the team.
+		 *
+		 * @return Bowlers, in input order.
+		 */
+		public List<Bowler> getBowlers() {
+			return Collections.unmodifiableList(bowlers);
+		}
+
+		/**
+		 * Gets the sum of the scratch series of the bowlers.
+		 *
+		 * @return Team scratch total.
+		 */
+		public int getSeries() {
+			return series;
+		}
+
+		/**
+		 * Gets the sum of the handicap series of the bowlers.
+		 *
+		 * @return Team handicap total.
+		 */
+		public int getHandicapSeries() {
+			return handicapSeries;
+		}
+
+		@Override
+		public String toString() {
+			return "TEAM " + name + " scratch=" + series + " handicap=" + handicapSeries;
+		}
+	}
+
+	/**
+	 * A league night.
+	 */
+	public static final class Session {
+		/** Name of the session. **/
+		private final String name;
+
+		/** Teams of the session. **/
+		private final List<Team> teams = new ArrayList<Team>();
+
+		/**
+		 * Initializes the session.
+		 *
+		 * @param name - Name of the session.
+		 */
+		private Session(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Gets the name of the session.
+		 *
+		 * @return Session name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the teams of the session.
+		 *
+		 * @return Teams, in input order.
+		 */
+		public List<Team> getTeams() {
+			return Collections.unmodifiableList(teams);
+		}
+
+		/**
+		 * Writes the report of the session: one line for the session, then one line per team
+		 * followed by one line per bowler of the team.
+		 *
+		 * @return Session report.
+		 */
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder("SESSION ").append(name);
+			for (Team team : teams) {
+				builder.append('\n').append(team);
+				for (Bowler bowler : team.bowlers)
+					builder.append('\n').append(bowler);
+			}
+			return builder.toString();
+		}
+	}
+
+	/**
+	 * Reads the sessions of an input one at a time.
+	 */
+	private static final class SessionReader {
+		/** Input of sessions. **/
+		private final BufferedReader reader;
+
+		/** Number of the last line read. **/
+		private int lineNumber;
+
+		/** Header of the next session, already read. **/
+		private String nextHeader;
+
+		/**
+		 * Initializes the reader.
+		 *
+		 * @param in - Input of sessions.
+		 */
+		private SessionReader(Reader in) {
+			reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+		}
+
+		/**
+		 * Reads the next meaningful line.
+		 *
+		 * @return Trimmed line, or null at the end of the input.
+		 * @throws IOException The input could not be read.
+		 */
+		private String readLine() throws IOException {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#"))
+					return line;
+			}
+			return null;
+		}
+
+		/**
+		 * Reads the next session.
+		 *
+		 * @return Next session, or null at the end of the input.
+		 * @throws IOException The input could not be read.
+		 * @throws IllegalArgumentException The input is not in the session format.
+		 */
+		private Session read() throws IOException, IllegalArgumentException {
+			String header = nextHeader != null ? nextHeader : readLine();
+			nextHeader = null;
+			if (header == null)
+				return null;
+			if (!header.startsWith("SESSION "))
+				throw error("Expected a SESSION line");
+			Session session = new Session(header.substring(8).trim());
+
+			Team team = null;
+			String line;
+			while ((line = readLine()) != null) {
+				if (line.startsWith("SESSION ")) {
+					nextHeader = line;
+					break;
+				} else if (line.startsWith("TEAM ")) {
+					team = new Team(line.substring(5).trim());
+					session.teams.add(team);
+				} else if (line.startsWith("BOWLER ")) {
+					if (team == null)
+						throw error("BOWLER line before any TEAM line");
+					team.bowlers.add(parseBowler(line.substring(7).trim().split("\\s+")));
+				} else {
+					throw error("Unknown line");
+				}
+			}
+			return session;
+		}
+
+		/**
+		 * Parses the fields of a bowler line.
+		 *
+		 * @param fields - Name, average and game lines.
+		 * @return Bowler.
+		 * @throws IllegalArgumentException The fields are not a valid bowler line.
+		 */
+		private Bowler parseBowler(String[] fields) throws IllegalArgumentException {
+			if (fields.length < 3)
+				throw error("BOWLER line needs a name, an average and at least one game");
+			int average;
+			try {
+				average = Integer.parseInt(fields[1]);
+			} catch (NumberFormatException e) {
+				throw error("Invalid average " + fields[1]);
+			}
+			String[] lines = new String[fields.length - 2];
+			System.arraycopy(fields, 2, lines, 0, lines.length);
+			return new Bowler(fields[0], average, lines);
+		}
+
+		/**
+		 * Builds the error for the last line read.
+		 *
+		 * @param message - Description of the error.
+		 * @return Error to throw.
+		 */
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException("Line " + lineNumber + ": " + message + ".");
+		}
+	}
+
+	/**
+	 * Scores the games of a bowler.
+	 */
+	private final class BowlerTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/** Bowler to score. **/
+		private final Bowler bowler;
+
+		/**
+		 * Initializes the task.
+		 *
+		 * @param bowler - Bowler to score.
+		 */
+		private BowlerTask(Bowler bowler) {
+			this.bowler = bowler;
+		}
+
+		@Override
+		protected void compute() {
+			bowler.handicap = getHandicap(bowler.average);
+			for (int i = 0; i < bowler.lines.length; i++) {
+				try {
+					bowler.games[i] = cache.score(bowler.lines[i]);
+					bowler.series += bowler.games[i];
+				} catch (IllegalStateException | IllegalArgumentException e) {
+					bowler.games[i] = INVALID;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Scores the bowlers of a session in parallel, then adds up the team totals.
+	 */
+	private final class SessionTask extends RecursiveTask<Session> {
+		private static final long serialVersionUID = 1L;
+
+		/** Session to score. **/
+		private final Session session;
+
+		/**
+		 * Initializes the task.
+		 *
+		 * @param session - Session to score.
+		 */
+		private SessionTask(Session session) {
+			this.session = session;
+		}
+
+		@Override
+		protected Session compute() {
+			List<BowlerTask> tasks = new ArrayList<BowlerTask>();
+			for (Team team : session.teams)
+				for (Bowler bowler : team.bowlers)
+					tasks.add(new BowlerTask(bowler));
+			ForkJoinTask.invokeAll(tasks);
+
+			for (Team team : session.teams) {
+				for (Bowler bowler : team.bowlers) {
+					team.series += bowler.series;
+					team.handicapSeries += bowler.getHandicapSeries();
+				}
+			}
+			return session;
+		}
+	}
+
+	/** Average the handicap brings bowlers up to. **/
+	private final int basis;
+
+	/** Percentage of the difference to the basis given as handicap. **/
+	private final int percentage;
+
+	/** Number of sessions scored at once. **/
+	private final int sessionsInFlight;
+
+	/** Cache of the scores of game lines. **/
+	private final ScoreCache cache;
+
+	/**
+	 * Initializes the scorer with the default handicap and number of sessions in flight.
+	 */
+	public LeagueScorer() {
+		this(DEFAULT_BASIS, DEFAULT_PERCENTAGE, DEFAULT_SESSIONS_IN_FLIGHT);
+	}
+
+	/**
+	 * Initializes the scorer.
+	 *
+	 * @param basis - Average the handicap brings bowlers up to.
+	 * @param percentage - Percentage of the difference to the basis given as handicap.
+	 * @param sessionsInFlight - Number of sessions scored at once.
+	 */
+	public LeagueScorer(int basis, int percentage, int sessionsInFlight) {
+		if (basis < 0 || percentage < 0 || percentage > 100)
+			throw new IllegalArgumentException("Invalid handicap: " + percentage + "% of " + basis);
+		if (sessionsInFlight <= 0)
+			throw new IllegalArgumentException("At least one session must be in flight.");
+		this.basis = basis;
+		this.percentage = percentage;
+		this.sessionsInFlight = sessionsInFlight;
+		cache = new ScoreCache();
+	}
+
+	/**
+	 * Gets the handicap added to each game of a bowler, which is the handicap percentage of the
+	 * difference between the basis and the average (rounded down, never negative).
+	 *
+	 * @param average - Average of the bowler.
+	 * @return Handicap per game.
+	 */
+	public int getHandicap(int average) {
+		return Math.max(0, (basis - average) * percentage / 100);
+	}
+
+	/**
+	 * Scores every session of the input, and hands each scored session to the sink in input
+	 * order.
+	 *
+	 * @param in - Input of sessions.
+	 * @param sink - Receives the scored sessions.
+	 * @return Number of sessions scored.
+	 * @throws IOException The input could not be read.
+	 * @throws IllegalArgumentException The input is not in the session format.
+	 */
+	public long run(Reader in, Consumer<Session> sink) throws IOException,
+			IllegalArgumentException {
+		SessionReader reader = new SessionReader(in);
+		Deque<ForkJoinTask<Session>> inFlight = new ArrayDeque<ForkJoinTask<Session>>();
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		long count = 0;
+		Session session;
+		while ((session = reader.read()) != null) {
+			inFlight.add(pool.submit(new SessionTask(session)));
+			if (inFlight.size() >= sessionsInFlight)
+				sink.accept(inFlight.poll().join());
+			count++;
+		}
+		while (!inFlight.isEmpty())
+			sink.accept(inFlight.poll().join());
+		return count;
+	}
+
+	/**
+	 * Gets the cache of the scores of game lines, to see how often lines repeat.
+	 *
+	 * @return Score cache.
+	 */
+	public ScoreCache getCache() {
+		return cache;
+	}
+}
@@ -0,0 +1,115 @@
+package main;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of the game currently being played on every live lane. When a journal is attached,
+ * each roll is journaled before it is applied, so that the games can be recovered by replaying
+ * the journal after a crash.
+ *
+ * @author Roger Delacruz
+ */
+public class LiveLanes {
+
+	/** Journal that rolls are written to before being applied (may be null). **/
+	private final RollJournal journal;
+
+	/** Game currently being played on each lane, by lane id. **/
+	private final Map<Integer, BowlingScore> games;
+
+	/**
+	 * Initializes live lanes without a journal.
+	 */
+	public LiveLanes() {
+		this(null);
+	}
+
+	/**
+	 * Initializes live lanes whose rolls are written to the given journal.
+	 *
+	 * @param journal - Journal to write rolls to, or null to keep games in memory only.
+	 */
+	public LiveLanes(RollJournal journal) {
+		this.journal = journal;
+		games = new HashMap<Integer, BowlingScore>();
+	}
+
+	/**
+	 * Rebuilds every live game by replaying the given journal, then keeps journaling new rolls to
+	 * it. Rolls that were rejected before the crash are rejected the same way during the replay.
+	 *
+	 * @param journal - Journal to recover the games from.
+	 * @return Live lanes in the same state as when the last journaled roll was applied.
+	 * @throws IOException The journal could not be read.
+	 */
+	public static LiveLanes recover(RollJournal journal) throws IOException {
+		final LiveLanes lanes = new LiveLanes(journal);
+		journal.replay(new RollJournal.RollVisitor() {
+			@Override
+			public void visit(int lane, long sequence, char symbol, long timestamp) {
+				try {
+					lanes.apply(lane, symbol);
+				} catch (IllegalStateException | IllegalArgumentException e) {
+					// Roll was rejected when it was first made as well
+				}
+			}
+		});
+		return lanes;
+	}
+
+	/**
+	 * Applies a roll to the game on the given lane. A new game is started on the lane if there
+	 * was none yet or if the previous game is over.
+	 *
+	 * @param lane - Lane id the roll was made on.
+	 * @param symbol - Roll symbol.
+	 * @return Game the roll was applied to.
+	 */
+	private BowlingScore apply(int lane, char symbol) {
+		BowlingScore game = games.get(lane);
+		if (game == null || game.isGameOver()) {
+			game = new BowlingScore();
+			games.put(lane, game);
+		}
+		game.processRoll(symbol);
+		return game;
+	}
+
+	/**
+	 * Journals a roll, then applies it to the game on the given lane.
+	 *
+	 * @param lane - Lane id the roll was made on.
+	 * @param symbol - Roll symbol.
+	 * @return Game the roll was applied to.
+	 * @throws IOException The roll could not be journaled.
+	 * @throws IllegalStateException The roll cannot be applied to the current frame.
+	 * @throws IllegalArgumentException The symbol is not a valid roll symbol.
+	 */
+	public synchronized BowlingScore roll(int lane, char symbol) throws IOException,
+			IllegalStateException, IllegalArgumentException {
+		if (journal != null)
+			journal.append(lane, symbol);
+		return apply(lane, symbol);
+	}
+
+	/**
+	 * Gets the game currently being played (or last finished) on the given lane.
+	 *
+	 * @param lane - Lane id.
+	 * @return Game on the lane, or null if no roll was made on it yet.
+	 */
+	public synchronized BowlingScore getGame(int lane) {
+		return games.get(lane);
+	}
+
+	/**
+	 * Gets the number of lanes that have had at least one roll.
+	 *
+	 * @return Number of lanes.
+	 */
+	public synchronized int getNumberOfLanes() {
+		return games.size();
+	}
+}
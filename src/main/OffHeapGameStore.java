@@ -0,0 +1,267 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Stores large numbers of partially played games outside of the heap. Every game occupies a
+ * fixed size record in direct memory, addressed by a slot id, so the heap only holds a handful of
+ * buffer references no matter how many games are stored, and the garbage collector never has to
+ * trace them.
+ *
+ * Each record is laid out as follows:
+ *
+ * 1) Packed game state from {@link PackedGame}, holding the running total, frame index, pins
+ * standing and pending bonuses (4 bytes).
+ * 2) Number of rolls made (1 byte).
+ * 3) Roll symbols, in the same notation as the application input (21 bytes).
+ * 4) Whether the slot is allocated (1 byte).
+ *
+ * Free records are chained together through their state field, so allocating and releasing
+ * slots does not need any heap structure either. Games are only read or updated in allocated
+ * slots, so that a released slot never has its free list link overwritten. Different slots can
+ * be used from different threads at the same time, but a single slot must not be used by two
+ * threads at once.
+ *
+ * @author Roger Delacruz
+ */
+public class OffHeapGameStore {
+
+	/** Size of a single game record. **/
+	public static final int RECORD_SIZE = 32;
+
+	/** Maximum number of rolls in a single game. **/
+	public static final int MAX_ROLLS = 21;
+
+	/** Number of records in each direct buffer (each buffer must stay under 2 GB). **/
+	private static final int RECORDS_PER_SEGMENT = 1 << 24;
+
+	/** Offset of the roll count within a record. **/
+	private static final int ROLL_COUNT_OFFSET = 4;
+
+	/** Offset of the roll symbols within a record. **/
+	private static final int ROLLS_OFFSET = 5;
+
+	/** Offset of the allocated flag within a record. **/
+	private static final int ALLOCATED_OFFSET = ROLLS_OFFSET + MAX_ROLLS;
+
+	/** Marks the end of the free list. **/
+	private static final int NO_SLOT = -1;
+
+	/* Constants should be place before this line */
+
+	/** Direct buffers holding the records. **/
+	private final ByteBuffer[] segments;
+
+	/** Maximum number of games stored at once. **/
+	private final int capacity;
+
+	/** Slot id at the head of the free list. **/
+	private int freeHead;
+
+	/** Number of slots currently allocated. **/
+	private int allocated;
+
+	/**
+	 * Allocates direct memory for the given number of games. Note that the JVM limits direct
+	 * memory with -XX:MaxDirectMemorySize.
+	 *
+	 * @param capacity - Maximum number of games stored at once.
+	 */
+	public OffHeapGameStore(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive.");
+		this.capacity = capacity;
+		int count = (capacity + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT;
+		segments = new ByteBuffer[count];
+		for (int i = 0; i < count; i++) {
+			int records = Math.min(RECORDS_PER_SEGMENT, capacity - i * RECORDS_PER_SEGMENT);
+			segments[i] = ByteBuffer.allocateDirect(records * RECORD_SIZE)
+					.order(ByteOrder.nativeOrder());
+		}
+
+		// Chains every record into the free list
+		for (int slot = 0; slot < capacity; slot++)
+			segment(slot).putInt(offset(slot), slot + 1 < capacity ? slot + 1 : NO_SLOT);
+		freeHead = 0;
+	}
+
+	/**
+	 * Gets the buffer holding the record of a slot.
+	 *
+	 * @param slot - Slot id.
+	 * @return Direct buffer.
+	 */
+	private ByteBuffer segment(int slot) {
+		return segments[slot / RECORDS_PER_SEGMENT];
+	}
+
+	/**
+	 * Gets the offset of the record of a slot within its buffer.
+	 *
+	 * @param slot - Slot id.
+	 * @return Byte offset.
+	 */
+	private static int offset(int slot) {
+		return (slot % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+	}
+
+	/**
+	 * Allocates a slot and starts a new game in it.
+	 *
+	 * @return Slot id of the new game.
+	 * @throws IllegalStateException Every slot is already allocated.
+	 */
+	public synchronized int allocate() throws IllegalStateException {
+		if (freeHead == NO_SLOT)
+			throw new IllegalStateException("All " + capacity + " game slots are in use.");
+		int slot = freeHead;
+		ByteBuffer segment = segment(slot);
+		freeHead = segment.getInt(offset(slot));
+		segment.put(offset(slot) + ALLOCATED_OFFSET, (byte) 1);
+		allocated++;
+		reset(slot);
+		return slot;
+	}
+
+	/**
+	 * Releases a slot so that it can be allocated for another game.
+	 *
+	 * @param slot - Slot id of the game to release.
+	 * @throws IllegalStateException The slot is not allocated.
+	 */
+	public synchronized void release(int slot) throws IllegalStateException {
+		checkSlot(slot);
+		ByteBuffer segment = segment(slot);
+		segment.put(offset(slot) + ALLOCATED_OFFSET, (byte) 0);
+		segment.putInt(offset(slot), freeHead);
+		freeHead = slot;
+		allocated--;
+	}
+
+	/**
+	 * Starts a new game in an allocated slot.
+	 *
+	 * @param slot - Slot id.
+	 * @throws IllegalStateException The slot is not allocated.
+	 */
+	public void reset(int slot) throws IllegalStateException {
+		checkSlot(slot);
+		ByteBuffer segment = segment(slot);
+		int offset = offset(slot);
+		segment.putInt(offset, PackedGame.NEW_GAME);
+		segment.put(offset + ROLL_COUNT_OFFSET, (byte) 0);
+	}
+
+	/**
+	 * Checks that a slot id is within the store and that the slot is allocated.
+	 *
+	 * @param slot - Slot id.
+	 * @throws IllegalStateException The slot is not allocated.
+	 */
+	private void checkSlot(int slot) throws IllegalStateException {
+		if (slot < 0 || slot >= capacity)
+			throw new IndexOutOfBoundsException("Invalid game slot: " + slot);
+		if (segment(slot).get(offset(slot) + ALLOCATED_OFFSET) == 0)
+			throw new IllegalStateException("Game slot " + slot + " is not allocated.");
+	}
+
+	/**
+	 * Applies a roll symbol to the game in a slot. The record is left unchanged if the roll is
+	 * rejected.
+	 *
+	 * @param slot - Slot id.
+	 * @param symbol - Roll symbol ("X", "/", "-" or "1" to "9").
+	 * @throws IllegalStateException The slot is not allocated, or the roll cannot be applied to
+	 * the current frame.
+	 * @throws IllegalArgumentException The symbol is not a valid roll symbol.
+	 */
+	public void roll(int slot, char symbol) throws IllegalStateException, IllegalArgumentException {
+		checkSlot(slot);
+		ByteBuffer segment = segment(slot);
+		int offset = offset(slot);
+		int state = PackedGame.symbol(segment.getInt(offset), symbol);
+		int rolls = segment.get(offset + ROLL_COUNT_OFFSET);
+		segment.put(offset + ROLLS_OFFSET + rolls, (byte) symbol);
+		segment.put(offset + ROLL_COUNT_OFFSET, (byte) (rolls + 1));
+		segment.putInt(offset, state);
+	}
+
+	/**
+	 * Gets the packed state of the game in a slot, to be read with {@link PackedGame}.
+	 *
+	 * @param slot - Slot id.
+	 * @return Packed game state.
+	 * @throws IllegalStateException The slot is not allocated.
+	 */
+	public int getState(int slot) throws IllegalStateException {
+		checkSlot(slot);
+		return segment(slot).getInt(offset(slot));
+	}
+
+	/**
+	 * Gets the total score so far of the game in a slot.
+	 *
+	 * @param slot - Slot id.
+	 * @return Total score so far.
+	 */
+	public int getTotal(int slot) {
+		return PackedGame.total(getState(slot));
+	}
+
+	/**
+	 * Gets the index of the frame the next roll of the game in a slot belongs to.
+	 *
+	 * @param slot - Slot id.
+	 * @return Frame index, from 0 to 9.
+	 */
+	public int getFrame(int slot) {
+		return PackedGame.frame(getState(slot));
+	}
+
+	/**
+	 * Checks whether the game in a slot is finished.
+	 *
+	 * @param slot - Slot id.
+	 * @return True if the game is finished, false otherwise.
+	 */
+	public boolean isFinished(int slot) {
+		return PackedGame.isFinished(getState(slot));
+	}
+
+	/**
+	 * Gets the rolls made so far in the game of a slot.
+	 *
+	 * @param slot - Slot id.
+	 * @return Roll symbols, in the same notation as the application input.
+	 * @throws IllegalStateException The slot is not allocated.
+	 */
+	public String getRolls(int slot) throws IllegalStateException {
+		checkSlot(slot);
+		ByteBuffer segment = segment(slot);
+		int offset = offset(slot);
+		int rolls = segment.get(offset + ROLL_COUNT_OFFSET);
+		StringBuilder line = new StringBuilder(rolls);
+		for (int i = 0; i < rolls; i++)
+			line.append((char) segment.get(offset + ROLLS_OFFSET + i));
+		return line.toString();
+	}
+
+	/**
+	 * Gets the maximum number of games stored at once.
+	 *
+	 * @return Capacity in games.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of slots currently allocated.
+	 *
+	 * @return Number of stored games.
+	 */
+	public synchronized int getAllocated() {
+		return allocated;
+	}
+}
@@ -0,0 +1,373 @@
+package main;
+
+/**
+ * Scores a game with the same rules as {@link BowlingScore}, but keeps the whole state of the
+ * game packed in a single int instead of a list of frames. Each roll is applied in constant time
+ * without allocating, which makes it suitable for bulk scoring and for storing large numbers of
+ * games outside of the heap.
+ *
+ * Rather than looking ahead for spare and strike bonuses, every roll is credited once for itself
+ * plus once for each earlier spare or strike still waiting on it. The packed state is laid out
+ * as follows (lowest bits first):
+ *
+ * 1) Running total (9 bits).
+ * 2) Current frame index, from 0 to 9 (4 bits).
+ * 3) Whether one ball has already been rolled at the current rack (1 bit).
+ * 4) Number of pins standing in the current rack (4 bits).
+ * 5) Number of earlier bonuses waiting on the next roll, from 0 to 2 (2 bits).
+ * 6) Number of earlier bonuses waiting on the roll after that, from 0 to 1 (1 bit).
+ * 7) Number of balls rolled in the final frame, from 0 to 3 (2 bits).
+ * 8) Whether a bonus ball was earned in the final frame (1 bit).
+ * 9) Whether the game is finished (1 bit).
+ *
+ * @author Roger Delacruz
+ */
+public final class PackedGame {
+
+	/** State of a game before its first roll. **/
+	public static final int NEW_GAME = Frame.NUM_OF_PINS << 14;
+
+	/** Index of the final frame. **/
+	private static final int FINAL_FRAME = 9;
+
+	private static final int TOTAL_MASK = 0x1FF;
+	private static final int FRAME_SHIFT = 9;
+	private static final int FRAME_MASK = 0xF << FRAME_SHIFT;
+	private static final int MID_RACK = 1 << 13;
+	private static final int STANDING_SHIFT = 14;
+	private static final int STANDING_MASK = 0xF << STANDING_SHIFT;
+	private static final int BONUS1_SHIFT = 18;
+	private static final int BONUS1_MASK = 0x3 << BONUS1_SHIFT;
+	private static final int BONUS2_SHIFT = 20;
+	private static final int BONUS2_MASK = 0x1 << BONUS2_SHIFT;
+	private static final int FINAL_BALLS_SHIFT = 21;
+	private static final int FINAL_BALLS_MASK = 0x3 << FINAL_BALLS_SHIFT;
+	private static final int BONUS_EARNED = 1 << 23;
+	private static final int FINISHED_BIT = 24;
+	private static final int FINISHED = 1 << FINISHED_BIT;
+
+	/**
+	 * Highest number of points each state can still gain, indexed by every bit of the state
+	 * except the running total.
+	 */
+	private static final short[] MAX_GAIN = buildMaxGain();
+
+	/* Constants should be place before this line */
+
+	/**
+	 * Not meant to be instantiated.
+	 */
+	private PackedGame() {
+	}
+
+	/**
+	 * Gets the running total of the game, including the bonuses of the rolls made so far. This
+	 * is always the same as {@link BowlingScore#calculateTotalScore()} for the same rolls.
+	 *
+	 * @param state - Packed game state.
+	 * @return Total score so far.
+	 */
+	public static int total(int state) {
+		return state & TOTAL_MASK;
+	}
+
+	/**
+	 * Gets the index of the frame the next roll belongs to (or the final frame once the game is
+	 * finished).
+	 *
+	 * @param state - Packed game state.
+	 * @return Frame index, from 0 to 9.
+	 */
+	public static int frame(int state) {
+		return (state & FRAME_MASK) >>> FRAME_SHIFT;
+	}
+
+	/**
+	 * Gets the number of pins standing for the next roll.
+	 *
+	 * @param state - Packed game state.
+	 * @return Pins standing.
+	 */
+	public static int pinsStanding(int state) {
+		return (state & STANDING_MASK) >>> STANDING_SHIFT;
+	}
+
+	/**
+	 * Checks whether one ball has already been rolled at the current rack, in which case the next
+	 * roll can be a spare but not a strike.
+	 *
+	 * @param state - Packed game state.
+	 * @return True if the rack has been rolled at once, false if it is fresh.
+	 */
+	public static boolean isMidRack(int state) {
+		return (state & MID_RACK) != 0;
+	}
+
+	/**
+	 * Gets the number of earlier spares and strikes whose bonus still includes the next roll.
+	 *
+	 * @param state - Packed game state.
+	 * @return Bonus multiplier of the next roll, from 0 to 2.
+	 */
+	public static int nextBonus(int state) {
+		return (state & BONUS1_MASK) >>> BONUS1_SHIFT;
+	}
+
+	/**
+	 * Gets the number of earlier strikes whose bonus still includes the roll after the next one.
+	 *
+	 * @param state - Packed game state.
+	 * @return Bonus multiplier of the roll after the next one, from 0 to 1.
+	 */
+	public static int secondBonus(int state) {
+		return (state & BONUS2_MASK) >>> BONUS2_SHIFT;
+	}
+
+	/**
+	 * Gets the number of balls rolled in the final frame so far.
+	 *
+	 * @param state - Packed game state.
+	 * @return Number of balls, from 0 to 3.
+	 */
+	public static int finalFrameBalls(int state) {
+		return (state & FINAL_BALLS_MASK) >>> FINAL_BALLS_SHIFT;
+	}
+
+	/**
+	 * Checks whether a bonus ball has been earned in the final frame with a strike or a spare.
+	 *
+	 * @param state - Packed game state.
+	 * @return True if a bonus ball was earned, false otherwise.
+	 */
+	public static boolean isBonusEarned(int state) {
+		return (state & BONUS_EARNED) != 0;
+	}
+
+	/**
+	 * Checks whether the game is finished, meaning no more rolls can be applied.
+	 *
+	 * @param state - Packed game state.
+	 * @return True if the game is finished, false otherwise.
+	 */
+	public static boolean isFinished(int state) {
+		return (state & FINISHED) != 0;
+	}
+
+	/**
+	 * Gets the highest final score the game can still reach, which is obtained by knocking down
+	 * every standing pin with every remaining roll. This is a single table lookup.
+	 *
+	 * @param state - Packed game state.
+	 * @return Maximum possible score.
+	 */
+	public static int maxPossibleScore(int state) {
+		return total(state) + MAX_GAIN[state >>> FRAME_SHIFT];
+	}
+
+	/**
+	 * Gets the lowest final score the game can still reach, which is obtained by missing every
+	 * remaining roll. Pending bonuses then add nothing, so it is the running total.
+	 *
+	 * @param state - Packed game state.
+	 * @return Minimum possible score.
+	 */
+	public static int minPossibleScore(int state) {
+		return total(state);
+	}
+
+	/**
+	 * Builds the table of maximum gains, by playing the best possible rolls from every state
+	 * with a zero running total (at most twelve rolls each).
+	 *
+	 * @return Maximum gain of every state.
+	 */
+	private static short[] buildMaxGain() {
+		short[] gains = new short[1 << (FINISHED_BIT + 1 - FRAME_SHIFT)];
+		for (int index = 0; index < gains.length; index++) {
+			int state = index << FRAME_SHIFT;
+			if (frame(state) > FINAL_FRAME || pinsStanding(state) > Frame.NUM_OF_PINS
+					|| nextBonus(state) > 2)
+				continue;	// State cannot be reached by any game
+			try {
+				while (!isFinished(state))
+					state = isMidRack(state) ? spare(state) : strike(state);
+				gains[index] = (short) total(state);
+			} catch (IllegalStateException e) {
+				// State cannot be reached by any game either
+			}
+		}
+		return gains;
+	}
+
+	/**
+	 * Applies a strike.
+	 *
+	 * @param state - Packed game state.
+	 * @return New packed game state.
+	 * @throws IllegalStateException Strike can only be performed on a fresh rack.
+	 */
+	public static int strike(int state) throws IllegalStateException {
+		if ((state & MID_RACK) != 0)
+			throw new IllegalStateException("There should zero rolls prior to a strike.");
+		return advance(state, pinsStanding(state), true);
+	}
+
+	/**
+	 * Applies a spare.
+	 *
+	 * @param state - Packed game state.
+	 * @return New packed game state.
+	 * @throws IllegalStateException Spare can only be performed on a rack with one roll.
+	 */
+	public static int spare(int state) throws IllegalStateException {
+		if ((state & MID_RACK) == 0)
+			throw new IllegalStateException("There should be one roll prior to a spare.");
+		return advance(state, pinsStanding(state), true);
+	}
+
+	/**
+	 * Applies a roll knocking down the given number of pins, without marking it as a spare or a
+	 * strike (just like {@link BowlingScore#processNumber(int)}).
+	 *
+	 * @param state - Packed game state.
+	 * @param number - Number of pins knocked down.
+	 * @return New packed game state.
+	 * @throws IllegalStateException The number of pins standing has been exceeded.
+	 */
+	public static int number(int state, int number) throws IllegalStateException {
+		if (number < 0 || number > pinsStanding(state))
+			throw new IllegalStateException("Only " + Frame.NUM_OF_PINS
+					+ " pins can be knocked down in a single frame.");
+		return advance(state, number, false);
+	}
+
+	/**
+	 * Applies a miss.
+	 *
+	 * @param state - Packed game state.
+	 * @return New packed game state.
+	 */
+	public static int miss(int state) {
+		return advance(state, 0, false);
+	}
+
+	/**
+	 * Applies a roll given as a pin count, where knocking down every standing pin is recorded as
+	 * a strike or spare.
+	 *
+	 * @param state - Packed game state.
+	 * @param pins - Number of pins knocked down.
+	 * @return New packed game state.
+	 * @throws IllegalStateException The number of pins standing has been exceeded.
+	 */
+	public static int roll(int state, int pins) throws IllegalStateException {
+		int standing = pinsStanding(state);
+		if (pins < 0 || pins > standing)
+			throw new IllegalStateException("Only " + Frame.NUM_OF_PINS
+					+ " pins can be knocked down in a single frame.");
+		return advance(state, pins, pins == standing);
+	}
+
+	/**
+	 * Applies a roll symbol, using the same notation as the application input.
+	 *
+	 * @param state - Packed game state.
+	 * @param symbol - Roll symbol ("X", "/", "-" or "1" to "9").
+	 * @return New packed game state.
+	 * @throws IllegalStateException The roll cannot be applied to the current frame.
+	 * @throws IllegalArgumentException The symbol is not a valid roll symbol.
+	 */
+	public static int symbol(int state, char symbol) throws IllegalStateException,
+			IllegalArgumentException {
+		switch (symbol) {
+			case 'X' :
+				return strike(state);
+			case '/' :
+				return spare(state);
+			case '-' :
+				return miss(state);
+			default :
+				if (symbol < '1' || symbol > '9')
+					throw new IllegalArgumentException("Invalid roll symbol: " + symbol);
+				return number(state, symbol - '0');
+		}
+	}
+
+	/**
+	 * Scores a whole line of roll symbols.
+	 *
+	 * @param line - Sequence of roll symbols for a single game.
+	 * @return Total score of the line.
+	 * @throws IllegalStateException Some roll cannot be applied to its frame.
+	 * @throws IllegalArgumentException Some character is not a valid roll symbol.
+	 */
+	public static int scoreLine(CharSequence line) throws IllegalStateException,
+			IllegalArgumentException {
+		int state = NEW_GAME;
+		for (int i = 0; i < line.length(); i++)
+			state = symbol(state, line.charAt(i));
+		return total(state);
+	}
+
+	/**
+	 * Credits a roll with its pending bonuses, then moves the frame and rack forward.
+	 *
+	 * @param state - Packed game state.
+	 * @param pins - Number of pins knocked down (already checked against the pins standing).
+	 * @param mark - Whether the roll is a strike or a spare.
+	 * @return New packed game state.
+	 * @throws IllegalStateException The game is already finished.
+	 */
+	private static int advance(int state, int pins, boolean mark) throws IllegalStateException {
+		if ((state & FINISHED) != 0)
+			throw new IllegalStateException("A completed final frame cannot have additional rolls!");
+
+		// Roll counts once for itself, plus once per pending bonus
+		int total = (state & TOTAL_MASK) + pins * (1 + nextBonus(state));
+		int bonus1 = secondBonus(state);
+		int bonus2 = 0;
+		int frame = frame(state);
+		int standing = pinsStanding(state);
+		boolean midRack = (state & MID_RACK) != 0;
+		int finalBalls = finalFrameBalls(state);
+		int flags = state & BONUS_EARNED;
+
+		if (frame < FINAL_FRAME) {
+			if (mark) {
+				// Strike waits on the next two rolls, spare on the next one
+				bonus1++;
+				if (!midRack)
+					bonus2 = 1;
+			}
+			if (mark || midRack) {
+				frame++;
+				standing = Frame.NUM_OF_PINS;
+				midRack = false;
+			} else {
+				standing -= pins;
+				midRack = true;
+			}
+		} else {
+			if (mark) {
+				// Strike or spare resets the rack, and earns a bonus ball when made with the
+				// first two balls
+				if (finalBalls < 2)
+					flags |= BONUS_EARNED;
+				standing = Frame.NUM_OF_PINS;
+				midRack = false;
+			} else if (midRack) {
+				midRack = false;
+				standing = Frame.NUM_OF_PINS;
+			} else {
+				standing -= pins;
+				midRack = true;
+			}
+			if (++finalBalls == 3 || (finalBalls == 2 && (flags & BONUS_EARNED) == 0))
+				flags |= FINISHED;
+		}
+
+		return total | (frame << FRAME_SHIFT) | (midRack ? MID_RACK : 0)
+				| (standing << STANDING_SHIFT) | (bonus1 << BONUS1_SHIFT)
+				| (bonus2 << BONUS2_SHIFT) | (finalBalls << FINAL_BALLS_SHIFT) | flags;
+	}
+}
@@ -0,0 +1,441 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Scores a game rolled at pin level, where each roll is given as the 10 bit mask of the pins
+ * still standing after it, so that splits and leaves can be told apart and not just counted.
+ *
+ * Pin n is bit n - 1 of a mask, with the usual rack layout:
+ *
+ *     7   8   9   10
+ *       4   5   6
+ *         2   3
+ *           1
+ *
+ * A game is a long holding the {@link PackedGame} state in its low half and the mask of the pins
+ * standing for the next roll in its high half. Each roll is scored through
+ * {@link PackedGame#roll(int, int)} with the number of pins it knocked down, so pin level games
+ * always score the same as the count based {@link Frame} rules. Leaves are classified by a single
+ * lookup in tables built once for all 1024 masks.
+ *
+ * @author Roger Delacruz
+ */
+public final class PinGame {
+
+	/**
+	 * Identifies a leave (the pins standing after the first ball at a rack) as either CLEAR (no
+	 * pins standing), a SINGLE_PIN, a CLUSTER (pins that can all be knocked down together), a
+	 * SPLIT (the headpin is down, and a pin is down between or right in front of standing pins)
+	 * or a WASHOUT (gaps like a split, but with the headpin standing).
+	 */
+	public static enum Leave { CLEAR, SINGLE_PIN, CLUSTER, SPLIT, WASHOUT }
+
+	/** Mask of a full rack. **/
+	public static final int ALL_PINS = (1 << Frame.NUM_OF_PINS) - 1;
+
+	/** Game before its first roll. **/
+	public static final long NEW_GAME = (long) ALL_PINS << 32 | PackedGame.NEW_GAME;
+
+	/** Mask of the headpin. **/
+	private static final int HEADPIN = 1;
+
+	/** Row of each pin, from the headpin (0) to the back row (3). **/
+	private static final int[] ROWS = { 0, 1, 1, 2, 2, 2, 3, 3, 3, 3 };
+
+	/** Column of each pin, in half pin spacings from the middle of the lane. **/
+	private static final int[] COLUMNS = { 0, -1, 1, -2, 0, 2, -3, -1, 1, 3 };
+
+	/** Pins each pin can take out, as masks. **/
+	private static final int[] NEIGHBOURS = buildNeighbours();
+
+	/** Kind of every leave, by mask. **/
+	private static final Leave[] LEAVES = buildLeaves();
+
+	/** Common name of every leave that has one, by mask. **/
+	private static final String[] NAMES = buildNames();
+
+	/** Most rolls in a game. **/
+	private static final int MAX_ROLLS = 21;
+
+	/** Rolls stored in each word of a stored game. **/
+	private static final int ROLLS_PER_WORD = 6;
+
+	/** Words taken by each stored game. **/
+	private static final int WORDS_PER_GAME = 4;
+
+	/** Shift of the first ball flags in the last word of a stored game. **/
+	private static final int FIRST_BALL_SHIFT = 30;
+
+	/** Shift of the roll count in the last word of a stored game. **/
+	private static final int COUNT_SHIFT = 58;
+
+	/* Constants should be place before this line */
+
+	/**
+	 * Games stored as packed bitsets: four longs per game, holding the mask left standing by each
+	 * roll (10 bits each, six per word), whether each roll was the first ball at a rack, and the
+	 * number of rolls. A season of games fits in a single array, and leave statistics are
+	 * gathered straight from the bits, without replaying the games.
+	 */
+	public static final class Store {
+		/** Packed games. **/
+		private long[] words;
+
+		/** Number of games stored. **/
+		private int size;
+
+		/**
+		 * Initializes an empty store.
+		 */
+		public Store() {
+			words = new long[16 * WORDS_PER_GAME];
+		}
+
+		/**
+		 * Checks and stores a game.
+		 *
+		 * @param standing - Mask of the pins left standing by each roll.
+		 * @param rolls - Number of rolls.
+		 * @return Index of the stored game.
+		 * @throws IllegalStateException Some roll cannot be applied to its frame.
+		 * @throws IllegalArgumentException Some mask is not a valid pin mask.
+		 */
+		public int add(int[] standing, int rolls) throws IllegalStateException,
+				IllegalArgumentException {
+			if (rolls > MAX_ROLLS)
+				throw new IllegalStateException("A game cannot have more than " + MAX_ROLLS + " rolls.");
+			if ((size + 1) * WORDS_PER_GAME > words.length)
+				words = Arrays.copyOf(words, words.length * 2);
+
+			// Slot is only taken once every roll has been checked
+			int base = size * WORDS_PER_GAME;
+			Arrays.fill(words, base, base + WORDS_PER_GAME, 0);
+			long game = NEW_GAME;
+			long firstBalls = 0;
+			for (int i = 0; i < rolls; i++) {
+				if (!PackedGame.isMidRack(state(game)))
+					firstBalls |= 1L << i;
+				game = roll(game, standing[i]);
+				words[base + i / ROLLS_PER_WORD] |= (long) standing[i] << (i % ROLLS_PER_WORD * 10);
+			}
+			words[base + WORDS_PER_GAME - 1] |= firstBalls << FIRST_BALL_SHIFT
+					| (long) rolls << COUNT_SHIFT;
+			return size++;
+		}
+
+		/**
+		 * Gets the number of games stored.
+		 *
+		 * @return Number of games.
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Gets the number of rolls of a stored game.
+		 *
+		 * @param index - Index of the game.
+		 * @return Number of rolls.
+		 */
+		public int getRolls(int index) {
+			return (int) (words[index * WORDS_PER_GAME + WORDS_PER_GAME - 1] >>> COUNT_SHIFT);
+		}
+
+		/**
+		 * Gets the mask of the pins left standing by a roll of a stored game.
+		 *
+		 * @param index - Index of the game.
+		 * @param roll - Index of the roll.
+		 * @return Pins standing after the roll.
+		 */
+		public int getStanding(int index, int roll) {
+			return (int) (words[index * WORDS_PER_GAME + roll / ROLLS_PER_WORD]
+					>>> (roll % ROLLS_PER_WORD * 10)) & ALL_PINS;
+		}
+
+		/**
+		 * Checks whether a roll of a stored game was the first ball at a rack.
+		 *
+		 * @param index - Index of the game.
+		 * @param roll - Index of the roll.
+		 * @return True if the roll was the first ball, false if it was rolled at a leave.
+		 */
+		public boolean isFirstBall(int index, int roll) {
+			return (words[index * WORDS_PER_GAME + WORDS_PER_GAME - 1] >>> (FIRST_BALL_SHIFT + roll)
+					& 1) != 0;
+		}
+
+		/**
+		 * Scores a stored game.
+		 *
+		 * @param index - Index of the game.
+		 * @return Total score.
+		 */
+		public int score(int index) {
+			long game = NEW_GAME;
+			int rolls = getRolls(index);
+			for (int i = 0; i < rolls; i++)
+				game = roll(game, getStanding(index, i));
+			return total(game);
+		}
+
+		/**
+		 * Counts, for every leave, how many times it was left by a first ball and then rolled at,
+		 * and how many of those times it was converted. Strikes are not counted.
+		 *
+		 * @param leaves - Receives the number of times each leave was rolled at, by mask.
+		 * @param conversions - Receives the number of times each leave was converted, by mask.
+		 */
+		public void countLeaves(long[] leaves, long[] conversions) {
+			for (int index = 0; index < size; index++) {
+				int base = index * WORDS_PER_GAME;
+				long last = words[base + WORDS_PER_GAME - 1];
+				int rolls = (int) (last >>> COUNT_SHIFT);
+				long firstBalls = last >>> FIRST_BALL_SHIFT;
+				for (int i = 0; i < rolls - 1; i++) {
+					if ((firstBalls >>> i & 1) == 0)
+						continue;
+					int leave = (int) (words[base + i / ROLLS_PER_WORD] >>> (i % ROLLS_PER_WORD * 10))
+							& ALL_PINS;
+					if (leave == 0)
+						continue;
+					int j = i + 1;
+					leaves[leave]++;
+					if ((words[base + j / ROLLS_PER_WORD] >>> (j % ROLLS_PER_WORD * 10) & ALL_PINS) == 0)
+						conversions[leave]++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Not meant to be instantiated.
+	 */
+	private PinGame() {
+	}
+
+	/**
+	 * Builds the mask of the pins each pin can take out: the pins diagonally next to it in the
+	 * rows in front and behind, and the pin right in front or behind it two rows away (a
+	 * sleeper). Two pins side by side in a row are not neighbours, since the ball has to go
+	 * through the pin in front of them to take out both.
+	 *
+	 * @return Neighbours of each pin.
+	 */
+	private static int[] buildNeighbours() {
+		int[] neighbours = new int[Frame.NUM_OF_PINS];
+		for (int a = 0; a < Frame.NUM_OF_PINS; a++) {
+			for (int b = 0; b < Frame.NUM_OF_PINS; b++) {
+				int rows = Math.abs(ROWS[a] - ROWS[b]);
+				int columns = Math.abs(COLUMNS[a] - COLUMNS[b]);
+				if ((rows == 1 && columns == 1) || (rows == 2 && columns == 0))
+					neighbours[a] |= 1 << b;
+			}
+		}
+		return neighbours;
+	}
+
+	/**
+	 * Checks whether standing pins are all connected through neighbours.
+	 *
+	 * @param mask - Pins standing.
+	 * @return True if every pin can be reached from every other one, false if there is a gap.
+	 */
+	private static boolean isConnected(int mask) {
+		int reached = Integer.lowestOneBit(mask);
+		int previous = 0;
+		while (reached != previous) {
+			previous = reached;
+			for (int pin = 0; pin < Frame.NUM_OF_PINS; pin++)
+				if ((previous >>> pin & 1) != 0)
+					reached |= NEIGHBOURS[pin] & mask;
+		}
+		return reached == mask;
+	}
+
+	/**
+	 * Builds the table of the kind of every leave.
+	 *
+	 * @return Kind of every leave, by mask.
+	 */
+	private static Leave[] buildLeaves() {
+		Leave[] leaves = new Leave[ALL_PINS + 1];
+		for (int mask = 0; mask <= ALL_PINS; mask++) {
+			if (mask == 0)
+				leaves[mask] = Leave.CLEAR;
+			else if (Integer.bitCount(mask) == 1)
+				leaves[mask] = Leave.SINGLE_PIN;
+			else if (isConnected(mask))
+				leaves[mask] = Leave.CLUSTER;
+			else
+				leaves[mask] = (mask & HEADPIN) != 0 ? Leave.WASHOUT : Leave.SPLIT;
+		}
+		return leaves;
+	}
+
+	/**
+	 * Builds the table of the common names of leaves.
+	 *
+	 * @return Name of every leave, or null if it has none, by mask.
+	 */
+	private static String[] buildNames() {
+		String[] names = new String[ALL_PINS + 1];
+		names[mask("7-10")] = "Bedposts";
+		names[mask("4-6-7-10")] = "Big four";
+		names[mask("2-7")] = "Baby split";
+		names[mask("3-10")] = "Baby split";
+		names[mask("2-4-5-8")] = "Bucket";
+		names[mask("3-5-6-9")] = "Bucket";
+		names[mask("4-6-7-8-10")] = "Greek church";
+		names[mask("4-6-7-9-10")] = "Greek church";
+		names[mask("8-10")] = "Cincinnati";
+		names[mask("7-9")] = "Cincinnati";
+		names[mask("5-7-10")] = "Lily";
+		names[mask("2-7-10")] = "Christmas tree";
+		names[mask("3-7-10")] = "Christmas tree";
+		names[mask("5-10")] = "Dime store";
+		names[mask("5-7")] = "Dime store";
+		names[mask("1-2-10")] = "Washout";
+		names[mask("1-3-7")] = "Washout";
+		return names;
+	}
+
+	/**
+	 * Builds the mask of pins written as pin numbers separated by dashes, such as "4-6-7-10".
+	 *
+	 * @param pins - Pin numbers, or an empty string for no pins.
+	 * @return Pin mask.
+	 * @throws IllegalArgumentException Some pin number is not between 1 and 10.
+	 */
+	public static int mask(String pins) throws IllegalArgumentException {
+		int mask = 0;
+		if (pins.isEmpty())
+			return mask;
+		for (String pin : pins.split("-")) {
+			int number;
+			try {
+				number = Integer.parseInt(pin.trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid pin number: " + pin);
+			}
+			if (number < 1 || number > Frame.NUM_OF_PINS)
+				throw new IllegalArgumentException("Invalid pin number: " + pin);
+			mask |= 1 << (number - 1);
+		}
+		return mask;
+	}
+
+	/**
+	 * Writes a pin mask as pin numbers separated by dashes, such as "4-6-7-10".
+	 *
+	 * @param mask - Pin mask.
+	 * @return Pin numbers, or an empty string for no pins.
+	 */
+	public static String pins(int mask) {
+		StringBuilder builder = new StringBuilder();
+		for (int pin = 0; pin < Frame.NUM_OF_PINS; pin++) {
+			if ((mask >>> pin & 1) != 0) {
+				if (builder.length() > 0)
+					builder.append('-');
+				builder.append(pin + 1);
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Gets the kind of a leave. This is a single table lookup.
+	 *
+	 * @param mask - Pins standing.
+	 * @return Kind of leave.
+	 */
+	public static Leave classify(int mask) {
+		return LEAVES[mask & ALL_PINS];
+	}
+
+	/**
+	 * Checks whether a leave is a split. This is a single table lookup.
+	 *
+	 * @param mask - Pins standing.
+	 * @return True if the leave is a split, false otherwise.
+	 */
+	public static boolean isSplit(int mask) {
+		return LEAVES[mask & ALL_PINS] == Leave.SPLIT;
+	}
+
+	/**
+	 * Gets the common name of a leave, such as "Bedposts" for the 7-10.
+	 *
+	 * @param mask - Pins standing.
+	 * @return Name of the leave, or null if it has none.
+	 */
+	public static String name(int mask) {
+		return NAMES[mask & ALL_PINS];
+	}
+
+	/**
+	 * Gets the {@link PackedGame} state of a game.
+	 *
+	 * @param game - Pin level game.
+	 * @return Packed game state.
+	 */
+	public static int state(long game) {
+		return (int) game;
+	}
+
+	/**
+	 * Gets the mask of the pins standing for the next roll.
+	 *
+	 * @param game - Pin level game.
+	 * @return Pins standing.
+	 */
+	public static int standing(long game) {
+		return (int) (game >>> 32);
+	}
+
+	/**
+	 * Gets the running total of a game.
+	 *
+	 * @param game - Pin level game.
+	 * @return Total score so far.
+	 */
+	public static int total(long game) {
+		return PackedGame.total((int) game);
+	}
+
+	/**
+	 * Checks whether a game is finished, meaning no more rolls can be applied.
+	 *
+	 * @param game - Pin level game.
+	 * @return True if the game is finished, false otherwise.
+	 */
+	public static boolean isFinished(long game) {
+		return PackedGame.isFinished((int) game);
+	}
+
+	/**
+	 * Applies a roll given as the pins it left standing. Knocking down every standing pin is
+	 * recorded as a strike or spare, and a fresh rack is set after it or after the second ball.
+	 *
+	 * @param game - Pin level game.
+	 * @param standing - Mask of the pins left standing by the roll.
+	 * @return New pin level game.
+	 * @throws IllegalStateException A pin down before the roll is standing after it, or the game
+	 * is already finished.
+	 * @throws IllegalArgumentException The mask is not a valid pin mask.
+	 */
+	public static long roll(long game, int standing) throws IllegalStateException,
+			IllegalArgumentException {
+		if ((standing & ~ALL_PINS) != 0)
+			throw new IllegalArgumentException("Invalid pin mask: " + standing);
+		int before = (int) (game >>> 32);
+		if ((standing & ~before) != 0)
+			throw new IllegalStateException("Pins " + pins(standing & ~before)
+					+ " were already knocked down.");
+		int state = PackedGame.roll((int) game, Integer.bitCount(before) - Integer.bitCount(standing));
+		int next = PackedGame.isMidRack(state) ? standing : ALL_PINS;
+		return (long) next << 32 | state;
+	}
+}
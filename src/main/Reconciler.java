@@ -0,0 +1,667 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Reconciles the scorecards entered by hand with the rolls logged by the pinsetters, and reports
+ * every game where they disagree.
+ *
+ * Roll logs hold one game per line: lane id, game number and roll symbols, such as
+ * "4 17 X7/9-X-88/-6XXX81". Scorecards hold the lane id, the game number, and the claimed
+ * cumulative score of each frame (or just the claimed total), such as "4 17 20 39 48 ... 167".
+ * Games are matched on their lane and game number, packed into a single long key.
+ *
+ * The logs are the build side of a hash join: each one is scored with the {@link BowlingScore}
+ * rules and stored in a primitive open-addressed table. The scorecards are then streamed through
+ * the table. When there are more logs than the table may hold, both inputs are spilled to disk in
+ * partitions by key hash, and each pair of partitions is joined on its own (partitioning again
+ * with another hash if one is still too big), so memory stays bounded whatever the input size.
+ * Discrepancies are reported in scorecard order within a partition, and unmatched logs after the
+ * scorecards of their partition.
+ *
+ * @author Roger Delacruz
+ */
+public class Reconciler {
+
+	/** Default maximum number of logs held in memory at once. **/
+	public static final int DEFAULT_MAX_ENTRIES = 1 << 18;
+
+	/** Number of partitions the inputs are spilled into. **/
+	private static final int PARTITIONS = 16;
+
+	/** Deepest level of partitioning before giving up. **/
+	private static final int MAX_DEPTH = 4;
+
+	/** Most frame scores of a game. **/
+	private static final int FRAMES = 10;
+
+	/** Frame count of a record whose rolls are not a valid game. **/
+	private static final int INVALID = -1;
+
+	/* Constants should be place before this line */
+
+	/**
+	 * A game where the scorecard and the roll log disagree, or where one of them is missing.
+	 */
+	public static final class Discrepancy {
+		/**
+		 * Identifies the kind of discrepancy as either a MISMATCH (the claimed score differs from
+		 * the logged rolls), an INVALID_LOG (the logged rolls are not a valid finished game, such as
+		 * a log cut off mid-game), a MISSING_LOG (a scorecard has no roll log) or a
+		 * MISSING_SCORECARD (a roll log has no scorecard).
+		 */
+		public static enum Type { MISMATCH, INVALID_LOG, MISSING_LOG, MISSING_SCORECARD }
+
+		/** Kind of discrepancy. **/
+		private final Type type;
+
+		/** Lane id of the game. **/
+		private final int lane;
+
+		/** Game number. **/
+		private final int game;
+
+		/** Total claimed by the scorecard, or -1 if there is none. **/
+		private final int claimed;
+
+		/** Total scored from the roll log, or -1 if there is none. **/
+		private final int actual;
+
+		/** First frame whose cumulative score differs, or 0 if unknown. **/
+		private final int frame;
+
+		/**
+		 * Initializes the discrepancy.
+		 *
+		 * @param type - Kind of discrepancy.
+		 * @param key - Lane id and game number.
+		 * @param claimed - Total claimed by the scorecard, or -1.
+		 * @param actual - Total scored from the roll log, or -1.
+		 * @param frame - First frame whose cumulative score differs, or 0.
+		 */
+		private Discrepancy(Type type, long key, int claimed, int actual, int frame) {
+			this.type = type;
+			this.lane = (int) (key >> 32);
+			this.game = (int) key;
+			this.claimed = claimed;
+			this.actual = actual;
+			this.frame = frame;
+		}
+
+		/**
+		 * Gets the kind of discrepancy.
+		 *
+		 * @return Discrepancy type.
+		 */
+		public Type getType() {
+			return type;
+		}
+
+		/**
+		 * Gets the lane id of the game.
+		 *
+		 * @return Lane id.
+		 */
+		public int getLane() {
+			return lane;
+		}
+
+		/**
+		 * Gets the game number.
+		 *
+		 * @return Game number.
+		 */
+		public int getGame() {
+			return game;
+		}
+
+		/**
+		 * Gets the total claimed by the scorecard.
+		 *
+		 * @return Claimed total, or -1 if there is no scorecard.
+		 */
+		public int getClaimed() {
+			return claimed;
+		}
+
+		/**
+		 * Gets the total scored from the roll log.
+		 *
+		 * @return Actual total, or -1 if there is no valid roll log.
+		 */
+		public int getActual() {
+			return actual;
+		}
+
+		/**
+		 * Gets the first frame whose cumulative score differs between the scorecard and the log.
+		 *
+		 * @return Frame number (1 to 10), or 0 if unknown.
+		 */
+		public int getFrame() {
+			return frame;
+		}
+
+		@Override
+		public String toString() {
+			return type + "[lane=" + lane + ", game=" + game + ", claimed=" + claimed + ", actual="
+					+ actual + ", frame=" + frame + "]";
+		}
+	}
+
+	/**
+	 * A game read from either input: its key and its (claimed or logged) cumulative frame scores.
+	 */
+	private static final class Record {
+		/** Lane id and game number. **/
+		private long key;
+
+		/** Number of frame scores, or INVALID. **/
+		private int count;
+
+		/** Cumulative frame scores. **/
+		private final int[] scores = new int[FRAMES];
+	}
+
+	/**
+	 * Supplies the records of an input one at a time.
+	 */
+	private static interface Source {
+		/**
+		 * Reads the next record.
+		 *
+		 * @param record - Record to fill.
+		 * @return True if a record was read, false at the end of the input.
+		 * @throws IOException The input could not be read.
+		 */
+		boolean next(Record record) throws IOException;
+	}
+
+	/**
+	 * Reads the lines of a text input, roll logs or scorecards.
+	 */
+	private static final class TextSource implements Source {
+		/** Text input. **/
+		private final BufferedReader reader;
+
+		/** Whether the lines are roll logs (scorecards otherwise). **/
+		private final boolean logs;
+
+		/** Number of the last line read. **/
+		private long lineNumber;
+
+		/**
+		 * Initializes the source.
+		 *
+		 * @param in - Text input.
+		 * @param logs - Whether the lines are roll logs (scorecards otherwise).
+		 */
+		private TextSource(Reader in, boolean logs) {
+			this.reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+			this.logs = logs;
+		}
+
+		@Override
+		public boolean next(Record record) throws IOException {
+			String line;
+			do {
+				line = reader.readLine();
+				lineNumber++;
+				if (line == null)
+					return false;
+				line = line.trim();
+			} while (line.isEmpty());
+
+			String[] fields = line.split("\\s+");
+			if (fields.length < 3 || fields.length > 2 + FRAMES || (logs && fields.length != 3))
+				throw error("Wrong number of fields");
+			try {
+				record.key = (long) Integer.parseInt(fields[0]) << 32
+						| (Integer.parseInt(fields[1]) & 0xFFFFFFFFL);
+				if (!logs) {
+					record.count = fields.length - 2;
+					for (int i = 0; i < record.count; i++)
+						record.scores[i] = Integer.parseInt(fields[i + 2]);
+					return true;
+				}
+			} catch (NumberFormatException e) {
+				throw error("Invalid number");
+			}
+
+			// Scores the logged rolls, which must be a whole game to settle a scorecard
+			try {
+				BowlingScore game = BowlingScore.fromLine(fields[2]);
+				if (!game.isGameOver()) {
+					record.count = INVALID;
+					return true;
+				}
+				int[] frames = game.calculateFrameScores();
+				record.count = frames.length;
+				System.arraycopy(frames, 0, record.scores, 0, frames.length);
+			} catch (IllegalStateException | IllegalArgumentException e) {
+				record.count = INVALID;
+			}
+			return true;
+		}
+
+		/**
+		 * Builds the error for the last line read.
+		 *
+		 * @param message - Description of the error.
+		 * @return Error to throw.
+		 */
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException((logs ? "Roll log" : "Scorecard") + " line "
+					+ lineNumber + ": " + message + ".");
+		}
+	}
+
+	/**
+	 * Reads the records of a spilled partition.
+	 */
+	private static final class SpillSource implements Source {
+		/** Partition file. **/
+		private final DataInputStream in;
+
+		/**
+		 * Initializes the source.
+		 *
+		 * @param file - Partition file.
+		 * @throws IOException The file could not be opened.
+		 */
+		private SpillSource(Path file) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+		}
+
+		@Override
+		public boolean next(Record record) throws IOException {
+			try {
+				record.key = in.readLong();
+			} catch (EOFException e) {
+				in.close();
+				return false;
+			}
+			record.count = in.readByte();
+			for (int i = 0; i < record.count; i++)
+				record.scores[i] = in.readInt();
+			return true;
+		}
+	}
+
+	/**
+	 * Primitive open-addressed hash table of scored logs, by key.
+	 */
+	private static final class LogTable {
+		/** Key of each slot. **/
+		private final long[] keys;
+
+		/** Frame count (or INVALID) of each slot plus two, 0 for an empty slot. **/
+		private final byte[] counts;
+
+		/** Cumulative frame scores of each slot. **/
+		private final short[] scores;
+
+		/** Whether the log of each slot was matched with a scorecard. **/
+		private final boolean[] matched;
+
+		/** Mask turning a hash into a slot index. **/
+		private final int mask;
+
+		/** Number of logs in the table. **/
+		private int size;
+
+		/**
+		 * Initializes an empty table.
+		 *
+		 * @param maxEntries - Maximum number of logs the table holds.
+		 */
+		private LogTable(int maxEntries) {
+			int capacity = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) * 2;
+			keys = new long[capacity];
+			counts = new byte[capacity];
+			scores = new short[capacity * FRAMES];
+			matched = new boolean[capacity];
+			mask = capacity - 1;
+		}
+
+		/**
+		 * Finds the slot of a key.
+		 *
+		 * @param key - Key to look up.
+		 * @return Slot holding the key, or the empty slot where it would go.
+		 */
+		private int slot(long key) {
+			int slot = (int) mix(key, 0) & mask;
+			while (counts[slot] != 0 && keys[slot] != key)
+				slot = (slot + 1) & mask;
+			return slot;
+		}
+
+		/**
+		 * Stores a log, replacing an earlier log with the same key.
+		 *
+		 * @param record - Scored log.
+		 */
+		private void put(Record record) {
+			int slot = slot(record.key);
+			if (counts[slot] == 0)
+				size++;
+			keys[slot] = record.key;
+			counts[slot] = (byte) (record.count + 2);
+			for (int i = 0; i < record.count; i++)
+				scores[slot * FRAMES + i] = (short) record.scores[i];
+		}
+
+		/**
+		 * Empties the table.
+		 */
+		private void clear() {
+			Arrays.fill(counts, (byte) 0);
+			Arrays.fill(matched, false);
+			size = 0;
+		}
+	}
+
+	/** Directory the partitions are spilled to. **/
+	private final Path spillDir;
+
+	/** Maximum number of logs held in memory at once. **/
+	private final int maxEntries;
+
+	/** Table of scored logs, reused for every partition. **/
+	private LogTable table;
+
+	/** Number of scorecards that agree with their log. **/
+	private long matches;
+
+	/** Number of discrepancies reported. **/
+	private long discrepancies;
+
+	/** Number of partition files spilled to disk. **/
+	private int spilledPartitions;
+
+	/**
+	 * Initializes the reconciler with the default memory bound.
+	 *
+	 * @param spillDir - Directory the partitions are spilled to, when the logs do not fit.
+	 */
+	public Reconciler(Path spillDir) {
+		this(spillDir, DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Initializes the reconciler.
+	 *
+	 * @param spillDir - Directory the partitions are spilled to, when the logs do not fit.
+	 * @param maxEntries - Maximum number of logs held in memory at once.
+	 */
+	public Reconciler(Path spillDir, int maxEntries) {
+		if (maxEntries <= 0)
+			throw new IllegalArgumentException("Maximum entries must be positive: " + maxEntries);
+		this.spillDir = spillDir;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Mixes a key into a well spread hash, different for each partitioning level.
+	 *
+	 * @param key - Key to hash.
+	 * @param level - Partitioning level.
+	 * @return Hash of the key.
+	 */
+	private static long mix(long key, int level) {
+		long h = (key + level) * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 32;
+		h *= 0xD6E8FEB86659FD93L;
+		return h ^ (h >>> 32);
+	}
+
+	/**
+	 * Reconciles every scorecard with the roll log of the same game, and reports each game where
+	 * they disagree or where one of them is missing.
+	 *
+	 * @param logs - Roll logs, one game per line.
+	 * @param scorecards - Scorecards, one game per line.
+	 * @param sink - Receives the discrepancies.
+	 * @return Number of games where the scorecard agrees with the log.
+	 * @throws IOException An input could not be read, or a partition could not be spilled.
+	 * @throws IllegalArgumentException A line of an input is not in the expected format.
+	 */
+	public long reconcile(Reader logs, Reader scorecards, Consumer<Discrepancy> sink)
+			throws IOException, IllegalArgumentException {
+		matches = 0;
+		discrepancies = 0;
+		spilledPartitions = 0;
+		if (table == null)
+			table = new LogTable(maxEntries);
+		join(new TextSource(logs, true), new TextSource(scorecards, false), 0, sink);
+		return matches;
+	}
+
+	/**
+	 * Joins a build input of logs with a probe input of scorecards, in memory if the logs fit in
+	 * the table, and partition by partition otherwise.
+	 *
+	 * @param build - Logs.
+	 * @param probe - Scorecards.
+	 * @param level - Partitioning level of the inputs.
+	 * @param sink - Receives the discrepancies.
+	 * @throws IOException An input could not be read, or a partition could not be spilled.
+	 */
+	private void join(Source build, Source probe, int level, Consumer<Discrepancy> sink)
+			throws IOException {
+		table.clear();
+		Record record = new Record();
+		boolean fits = true;
+		while (fits && build.next(record)) {
+			fits = table.size < maxEntries || table.counts[table.slot(record.key)] != 0;
+			if (fits)
+				table.put(record);
+		}
+		if (fits) {
+			probe(probe, sink);
+			return;
+		}
+		if (level >= MAX_DEPTH)
+			throw new IOException("Roll logs cannot be partitioned to fit in memory.");
+
+		// Spills the table, the log that did not fit and the rest of both inputs into partitions,
+		// then joins each pair
+		Record pending = new Record();
+		pending.key = record.key;
+		pending.count = record.count;
+		System.arraycopy(record.scores, 0, pending.scores, 0, FRAMES);
+		Path[] buildFiles = new Path[PARTITIONS];
+		Path[] probeFiles = new Path[PARTITIONS];
+		try {
+			DataOutputStream[] outs = open(buildFiles, "logs", level);
+			try {
+				for (int slot = 0; slot < table.keys.length; slot++) {
+					if (table.counts[slot] == 0)
+						continue;
+					record.key = table.keys[slot];
+					record.count = table.counts[slot] - 2;
+					for (int i = 0; i < record.count; i++)
+						record.scores[i] = table.scores[slot * FRAMES + i];
+					write(outs, record, level);
+				}
+				write(outs, pending, level);
+				while (build.next(record))
+					write(outs, record, level);
+			} finally {
+				close(outs);
+			}
+			outs = open(probeFiles, "scorecards", level);
+			try {
+				while (probe.next(record))
+					write(outs, record, level);
+			} finally {
+				close(outs);
+			}
+			for (int i = 0; i < PARTITIONS; i++)
+				join(new SpillSource(buildFiles[i]), new SpillSource(probeFiles[i]), level + 1, sink);
+		} finally {
+			for (int i = 0; i < PARTITIONS; i++) {
+				if (buildFiles[i] != null)
+					Files.deleteIfExists(buildFiles[i]);
+				if (probeFiles[i] != null)
+					Files.deleteIfExists(probeFiles[i]);
+			}
+		}
+	}
+
+	/**
+	 * Streams the scorecards through the table of logs, then reports the logs left unmatched.
+	 *
+	 * @param probe - Scorecards.
+	 * @param sink - Receives the discrepancies.
+	 * @throws IOException The scorecards could not be read.
+	 */
+	private void probe(Source probe, Consumer<Discrepancy> sink) throws IOException {
+		Record card = new Record();
+		while (probe.next(card)) {
+			int claimed = card.scores[card.count - 1];
+			int slot = table.slot(card.key);
+			if (table.counts[slot] == 0) {
+				report(sink, new Discrepancy(Discrepancy.Type.MISSING_LOG, card.key, claimed, -1, 0));
+				continue;
+			}
+			table.matched[slot] = true;
+			int frames = table.counts[slot] - 2;
+			if (frames == INVALID) {
+				report(sink, new Discrepancy(Discrepancy.Type.INVALID_LOG, card.key, claimed, -1, 0));
+				continue;
+			}
+
+			int actual = frames == 0 ? 0 : table.scores[slot * FRAMES + frames - 1];
+			int frame = 0;
+			if (card.count == 1) {
+				// Only the total was claimed
+				if (claimed == actual) {
+					matches++;
+					continue;
+				}
+			} else {
+				for (int i = 0; i < Math.max(card.count, frames) && frame == 0; i++)
+					if (i >= card.count || i >= frames || card.scores[i] != table.scores[slot * FRAMES + i])
+						frame = i + 1;
+				if (frame == 0) {
+					matches++;
+					continue;
+				}
+			}
+			report(sink, new Discrepancy(Discrepancy.Type.MISMATCH, card.key, claimed, actual, frame));
+		}
+
+		for (int slot = 0; slot < table.keys.length; slot++) {
+			int frames = table.counts[slot] - 2;
+			if (table.counts[slot] == 0 || table.matched[slot])
+				continue;
+			int actual = frames <= 0 ? -1 : table.scores[slot * FRAMES + frames - 1];
+			report(sink, new Discrepancy(Discrepancy.Type.MISSING_SCORECARD, table.keys[slot], -1,
+					actual, 0));
+		}
+	}
+
+	/**
+	 * Hands a discrepancy to the sink and counts it.
+	 *
+	 * @param sink - Receives the discrepancies.
+	 * @param discrepancy - Discrepancy to report.
+	 */
+	private void report(Consumer<Discrepancy> sink, Discrepancy discrepancy) {
+		discrepancies++;
+		sink.accept(discrepancy);
+	}
+
+	/**
+	 * Creates the files of a set of partitions.
+	 *
+	 * @param files - Receives the paths of the partition files.
+	 * @param name - Name of the input being partitioned.
+	 * @param level - Partitioning level.
+	 * @return Streams writing to the partition files.
+	 * @throws IOException A partition file could not be created.
+	 */
+	private DataOutputStream[] open(Path[] files, String name, int level) throws IOException {
+		Files.createDirectories(spillDir);
+		DataOutputStream[] outs = new DataOutputStream[files.length];
+		try {
+			for (int i = 0; i < files.length; i++) {
+				files[i] = Files.createTempFile(spillDir, name + "-" + level + "-" + i + "-", ".spill");
+				outs[i] = new DataOutputStream(new BufferedOutputStream(
+						Files.newOutputStream(files[i]), 1 << 16));
+				spilledPartitions++;
+			}
+		} catch (IOException e) {
+			close(outs);
+			throw e;
+		}
+		return outs;
+	}
+
+	/**
+	 * Writes a record to the partition of its key.
+	 *
+	 * @param outs - Streams writing to the partition files.
+	 * @param record - Record to write.
+	 * @param level - Partitioning level.
+	 * @throws IOException The record could not be written.
+	 */
+	private static void write(DataOutputStream[] outs, Record record, int level) throws IOException {
+		DataOutputStream out = outs[(int) ((mix(record.key, level + 1) >>> 1) % outs.length)];
+		out.writeLong(record.key);
+		out.writeByte(record.count);
+		for (int i = 0; i < record.count; i++)
+			out.writeInt(record.scores[i]);
+	}
+
+	/**
+	 * Closes the streams of a set of partitions.
+	 *
+	 * @param outs - Streams writing to the partition files.
+	 * @throws IOException A stream could not be closed.
+	 */
+	private static void close(DataOutputStream[] outs) throws IOException {
+		IOException failure = null;
+		for (DataOutputStream out : outs) {
+			try {
+				if (out != null)
+					out.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * Gets the number of discrepancies reported by the last reconciliation.
+	 *
+	 * @return Number of discrepancies.
+	 */
+	public long getDiscrepancies() {
+		return discrepancies;
+	}
+
+	/**
+	 * Gets the number of partition files spilled to disk by the last reconciliation.
+	 *
+	 * @return Number of partition files, 0 if the logs fit in memory.
+	 */
+	public int getSpilledPartitions() {
+		return spilledPartitions;
+	}
+}
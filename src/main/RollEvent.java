@@ -0,0 +1,49 @@
+package main;
+
+/**
+ * A single roll made on a lane, as it flows into the roll event pipeline.
+ *
+ * @author Roger Delacruz
+ */
+public class RollEvent {
+
+	/** Lane id the roll was made on. **/
+	private final int lane;
+
+	/** Roll symbol ("X", "/", "-" or "1" to "9"). **/
+	private final char symbol;
+
+	/**
+	 * Initializes the roll event.
+	 *
+	 * @param lane - Lane id the roll was made on.
+	 * @param symbol - Roll symbol.
+	 */
+	public RollEvent(int lane, char symbol) {
+		this.lane = lane;
+		this.symbol = symbol;
+	}
+
+	/**
+	 * Gets the lane id the roll was made on.
+	 *
+	 * @return Lane id.
+	 */
+	public int getLane() {
+		return lane;
+	}
+
+	/**
+	 * Gets the roll symbol.
+	 *
+	 * @return Roll symbol.
+	 */
+	public char getSymbol() {
+		return symbol;
+	}
+
+	@Override
+	public String toString() {
+		return "RollEvent[lane=" + lane + ", symbol=" + symbol + "]";
+	}
+}
@@ -0,0 +1,133 @@
+package main;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Reactive stage that applies roll events to the game of each lane, and publishes the resulting
+ * score events to its subscribers.
+ *
+ * Backpressure is demand based on both sides. Each subscriber gets its own bounded buffer and
+ * only receives as many events as it has requested. Once the buffer of the slowest subscriber is
+ * full, the processor stops requesting rolls from upstream until that subscriber catches up, so
+ * nothing is polled and nothing is dropped.
+ *
+ * @author Roger Delacruz
+ */
+public class RollEventProcessor extends SubmissionPublisher<ScoreEvent>
+		implements Flow.Processor<RollEvent, ScoreEvent> {
+
+	/** Default number of rolls requested from upstream at a time. **/
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	/* Constants should be place before this line */
+
+	/** Number of rolls requested from upstream at a time. **/
+	private final int batchSize;
+
+	/** Tracked game of each lane, by lane id. **/
+	private final Map<Integer, TrackedGame> games;
+
+	/** Publishes each score event to the subscribers, blocking while a buffer is full. **/
+	private final Consumer<ScoreEvent> sink;
+
+	/** Subscription to the upstream roll publisher. **/
+	private Flow.Subscription subscription;
+
+	/** Number of requested rolls that have not arrived yet. **/
+	private int outstanding;
+
+	/** Number of rolls that could not be applied to their game, read from any thread. **/
+	private final LongAdder rejectedRolls;
+
+	/**
+	 * Initializes the processor with the common pool and default buffer sizes.
+	 */
+	public RollEventProcessor() {
+		this(ForkJoinPool.commonPool(), Flow.defaultBufferSize(), DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Initializes the processor.
+	 *
+	 * @param executor - Executor delivering score events to the subscribers.
+	 * @param maxBufferCapacity - Maximum number of undelivered events buffered per subscriber.
+	 * @param batchSize - Number of rolls requested from upstream at a time.
+	 */
+	public RollEventProcessor(Executor executor, int maxBufferCapacity, int batchSize) {
+		super(executor, maxBufferCapacity);
+		if (batchSize <= 0)
+			throw new IllegalArgumentException("Batch size must be positive.");
+		this.batchSize = batchSize;
+		games = new HashMap<Integer, TrackedGame>();
+		rejectedRolls = new LongAdder();
+		sink = new Consumer<ScoreEvent>() {
+			@Override
+			public void accept(ScoreEvent event) {
+				submit(event);
+			}
+		};
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		if (this.subscription != null) {
+			subscription.cancel();		// Only one upstream publisher is supported
+			return;
+		}
+		this.subscription = subscription;
+		outstanding = batchSize;
+		subscription.request(batchSize);
+	}
+
+	/**
+	 * Applies the roll to the game of its lane and publishes the resulting score events. Rolls
+	 * that cannot be applied are counted and otherwise ignored.
+	 *
+	 * @param roll - Next roll event.
+	 */
+	@Override
+	public void onNext(RollEvent roll) {
+		TrackedGame game = games.get(roll.getLane());
+		if (game == null) {
+			game = new TrackedGame(roll.getLane());
+			games.put(roll.getLane(), game);
+		}
+		try {
+			game.roll(roll.getSymbol(), sink);
+		} catch (IllegalStateException | IllegalArgumentException e) {
+			rejectedRolls.increment();
+		}
+
+		// Asks for the next batch only once the current one has been published
+		if (--outstanding == 0) {
+			outstanding = batchSize;
+			subscription.request(batchSize);
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		closeExceptionally(throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		close();
+	}
+
+	/**
+	 * Gets the number of rolls that could not be applied to their game.
+	 *
+	 * @return Number of rejected rolls.
+	 */
+	public long getRejectedRolls() {
+		return rejectedRolls.sum();
+	}
+}
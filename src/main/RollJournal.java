@@ -0,0 +1,331 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+/**
+ * Append-only, memory-mapped journal of rolls made on live lanes. Every roll is written to the
+ * journal before it is applied to a game, so that the state of every live game can be rebuilt by
+ * replaying the journal after the scoring process dies.
+ *
+ * Records are written straight into a mapped region of the journal file, which survives a crash
+ * of the process. Flushing to disk (fsync) is done by a background thread in batches (group
+ * commit), so the scoring thread never waits on the disk unless it explicitly asks to. If a
+ * group commit fails, the journal is left failed, and every later append or wait for durability
+ * throws the failure instead of claiming records are on disk.
+ *
+ * @author Roger Delacruz
+ */
+public class RollJournal implements Closeable {
+
+	/**
+	 * Receives the records of the journal in sequence order while it is being replayed.
+	 */
+	public static interface RollVisitor {
+		/**
+		 * Visits a single journal record.
+		 *
+		 * @param lane - Lane id the roll was made on.
+		 * @param sequence - Sequence number of the roll within the journal (starting at 1).
+		 * @param symbol - Roll symbol ("X", "/", "-" or "1" to "9").
+		 * @param timestamp - Time the roll was journaled, in milliseconds since the epoch.
+		 */
+		void visit(int lane, long sequence, char symbol, long timestamp);
+	}
+
+	/** Size of a single record: sequence (8), timestamp (8), lane (4), symbol (2), padding (2). **/
+	public static final int RECORD_SIZE = 24;
+
+	/** Number of records in each mapped region of the journal file. **/
+	private static final int RECORDS_PER_REGION = 1 << 20;
+
+	/** Size of each mapped region of the journal file. **/
+	private static final long REGION_SIZE = (long) RECORD_SIZE * RECORDS_PER_REGION;
+
+	/** Default maximum time between two group commits, in milliseconds. **/
+	public static final long DEFAULT_COMMIT_INTERVAL = 10;
+
+	/** Default number of pending records that triggers a group commit early. **/
+	public static final int DEFAULT_COMMIT_SIZE = 4096;
+
+	/* Constants should be place before this line */
+
+	/** Channel of the journal file. **/
+	private final FileChannel channel;
+
+	/** Maximum time between two group commits. **/
+	private final long commitInterval;
+
+	/** Number of pending records that triggers a group commit early. **/
+	private final int commitSize;
+
+	/** Background thread performing the group commits. **/
+	private final Thread flusher;
+
+	/** Region currently being appended to. **/
+	private MappedByteBuffer region;
+
+	/** Full regions that still have to be flushed by the next group commit, oldest first. **/
+	private final ArrayDeque<MappedByteBuffer> retiredRegions;
+
+	/** Index of the region currently being appended to. **/
+	private long regionIndex;
+
+	/** Sequence number that will be given to the next record. **/
+	private long nextSequence;
+
+	/** Highest sequence number known to be flushed to disk. **/
+	private volatile long durableSequence;
+
+	/** Set once the journal has been closed. **/
+	private volatile boolean closed;
+
+	/** Reason a group commit failed, after which nothing is known to be durable anymore. **/
+	private IOException failure;
+
+	/**
+	 * Opens the journal with the default group commit settings.
+	 *
+	 * @param file - Journal file, which is created if it does not exist.
+	 * @throws IOException The journal file could not be opened or mapped.
+	 */
+	public RollJournal(Path file) throws IOException {
+		this(file, DEFAULT_COMMIT_INTERVAL, DEFAULT_COMMIT_SIZE);
+	}
+
+	/**
+	 * Opens the journal and positions it after the last valid record, so that new records are
+	 * appended to the existing ones.
+	 *
+	 * @param file - Journal file, which is created if it does not exist.
+	 * @param commitInterval - Maximum time between two group commits, in milliseconds.
+	 * @param commitSize - Number of pending records that triggers a group commit early.
+	 * @throws IOException The journal file could not be opened or mapped.
+	 */
+	public RollJournal(Path file, long commitInterval, int commitSize) throws IOException {
+		if (commitInterval <= 0 || commitSize <= 0)
+			throw new IllegalArgumentException("Group commit interval and size must be positive.");
+		this.commitInterval = commitInterval;
+		this.commitSize = commitSize;
+		retiredRegions = new ArrayDeque<MappedByteBuffer>();
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+
+		// Finds the end of the valid records, region by region
+		nextSequence = 1;
+		regionIndex = 0;
+		region = mapRegion(0);
+		while (true) {
+			int offset = (int) (((nextSequence - 1) % RECORDS_PER_REGION) * RECORD_SIZE);
+			if (region.getLong(offset) != nextSequence)
+				break;
+			if (++nextSequence % RECORDS_PER_REGION == 1)
+				region = mapRegion(++regionIndex);
+		}
+		durableSequence = nextSequence - 1;
+
+		flusher = new Thread(this::runFlusher, "roll-journal-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * Maps a region of the journal file, growing the file if needed.
+	 *
+	 * @param index - Index of the region to map.
+	 * @return Mapped region.
+	 * @throws IOException The region could not be mapped.
+	 */
+	private MappedByteBuffer mapRegion(long index) throws IOException {
+		MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, index * REGION_SIZE, REGION_SIZE);
+		buffer.order(ByteOrder.nativeOrder());
+		return buffer;
+	}
+
+	/**
+	 * Appends a roll to the journal. The record survives a crash of the process as soon as this
+	 * method returns, and survives a crash of the machine once it has been group committed.
+	 *
+	 * @param lane - Lane id the roll was made on.
+	 * @param symbol - Roll symbol.
+	 * @return Sequence number of the record.
+	 * @throws IOException A new region of the journal file could not be mapped, or a group commit
+	 * has failed.
+	 * @throws IllegalStateException The journal has been closed.
+	 */
+	public synchronized long append(int lane, char symbol) throws IOException, IllegalStateException {
+		if (closed)
+			throw new IllegalStateException("The roll journal has been closed.");
+		checkFailure();
+
+		// Moves on to a new region when the current one is full
+		long sequence = nextSequence;
+		int offset = (int) (((sequence - 1) % RECORDS_PER_REGION) * RECORD_SIZE);
+		if ((sequence - 1) / RECORDS_PER_REGION != regionIndex) {
+			retiredRegions.add(region);
+			region = mapRegion(++regionIndex);
+		}
+
+		// Sequence is written last, since it marks the record as valid
+		region.putLong(offset + 8, System.currentTimeMillis());
+		region.putInt(offset + 16, lane);
+		region.putChar(offset + 20, symbol);
+		region.putLong(offset, sequence);
+		nextSequence++;
+
+		if (sequence - durableSequence >= commitSize)
+			notifyAll();	// Wakes up flusher early
+		return sequence;
+	}
+
+	/**
+	 * Blocks until the given record has been flushed to disk by a group commit.
+	 *
+	 * @param sequence - Sequence number of the record to wait for.
+	 * @throws IOException A group commit has failed before the record was flushed.
+	 * @throws InterruptedException The waiting thread was interrupted.
+	 */
+	public synchronized void awaitDurable(long sequence) throws IOException, InterruptedException {
+		while (durableSequence < sequence && !closed && failure == null) {
+			notifyAll();	// Asks for a group commit right away
+			wait();
+		}
+		if (durableSequence < sequence)
+			checkFailure();
+	}
+
+	/**
+	 * Throws the failure of an earlier group commit, if any.
+	 *
+	 * @throws IOException A group commit has failed.
+	 */
+	private void checkFailure() throws IOException {
+		if (failure != null)
+			throw new IOException("The roll journal could not be flushed to disk.", failure);
+	}
+
+	/**
+	 * Gets the highest sequence number known to be flushed to disk.
+	 *
+	 * @return Durable sequence number.
+	 */
+	public long getDurableSequence() {
+		return durableSequence;
+	}
+
+	/**
+	 * Gets the sequence number of the latest record appended to the journal.
+	 *
+	 * @return Latest sequence number, or 0 if the journal is empty.
+	 */
+	public synchronized long getLastSequence() {
+		return nextSequence - 1;
+	}
+
+	/**
+	 * Main loop of the flusher thread. Waits for either the commit interval or enough pending
+	 * records, then forces the written regions to disk outside of the lock. Stops at the first
+	 * region that cannot be forced, leaving the journal failed.
+	 */
+	private void runFlusher() {
+		while (true) {
+			MappedByteBuffer current;
+			MappedByteBuffer[] retired;
+			long target;
+			synchronized (this) {
+				if (!closed && nextSequence - 1 - durableSequence < commitSize) {
+					try {
+						wait(commitInterval);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (closed)
+					return;
+				target = nextSequence - 1;
+				current = region;
+				retired = retiredRegions.toArray(new MappedByteBuffer[retiredRegions.size()]);
+				retiredRegions.clear();
+			}
+
+			if (target > durableSequence) {
+				try {
+					for (MappedByteBuffer buffer : retired)
+						buffer.force();
+					current.force();
+				} catch (UncheckedIOException e) {
+					synchronized (this) {
+						failure = e.getCause();
+						notifyAll();	// Waiting threads get the failure instead of hanging
+					}
+					return;
+				}
+				synchronized (this) {
+					durableSequence = target;
+					notifyAll();	// Releases threads waiting on durability
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replays every record of the journal in sequence order.
+	 *
+	 * @param visitor - Visitor receiving the records.
+	 * @throws IOException A region of the journal file could not be mapped.
+	 */
+	public synchronized void replay(RollVisitor visitor) throws IOException {
+		MappedByteBuffer buffer = null;
+		for (long sequence = 1; sequence < nextSequence; sequence++) {
+			int offset = (int) (((sequence - 1) % RECORDS_PER_REGION) * RECORD_SIZE);
+			if (offset == 0)
+				buffer = mapRegion((sequence - 1) / RECORDS_PER_REGION);
+			visitor.visit(buffer.getInt(offset + 16), sequence, buffer.getChar(offset + 20),
+					buffer.getLong(offset + 8));
+		}
+	}
+
+	/**
+	 * Flushes every record to disk, stops the flusher thread and closes the journal file.
+	 *
+	 * @throws IOException The records could not be flushed, now or by an earlier group commit.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+			notifyAll();
+		}
+		try {
+			flusher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (this) {
+			try {
+				checkFailure();
+				for (MappedByteBuffer buffer : retiredRegions)
+					buffer.force();
+				region.force();
+				durableSequence = nextSequence - 1;
+			} catch (UncheckedIOException e) {
+				failure = e.getCause();
+				checkFailure();
+			} finally {
+				retiredRegions.clear();
+				channel.close();
+			}
+		}
+	}
+}
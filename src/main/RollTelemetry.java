@@ -0,0 +1,382 @@
+package main;
+
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compact binary format for the stream of rolls emitted by the lanes. Consecutive records are
+ * very much alike (same lane, next sequence number, timestamp a few seconds later), so each
+ * record only stores what changed since the previous one:
+ *
+ * 1) A header byte, holding the 4 bit roll code in its high half, and flags in its low half
+ * telling whether the lane is the same, the sequence number is the next one, and the timestamp
+ * is the same as in the previous record.
+ * 2) For each field that is not covered by a flag, in the order lane, sequence, timestamp, the
+ * difference with the previous record as a zigzag varint (7 bits per byte, small differences of
+ * either sign take a single byte).
+ *
+ * A typical record takes 2 or 3 bytes, instead of about 30 as text. The stream starts with a
+ * magic number, and the first record is encoded against a lane, sequence and timestamp of 0.
+ *
+ * @author Roger Delacruz
+ */
+public final class RollTelemetry {
+
+	/** Magic number starting every stream ("BRT1"). **/
+	public static final int MAGIC = 0x42525431;
+
+	/** Code of a miss. **/
+	public static final int MISS = 0;
+
+	/** Code of a strike (codes 1 to 9 are the number of pins knocked down). **/
+	public static final int STRIKE = 10;
+
+	/** Code of a spare. **/
+	public static final int SPARE = 11;
+
+	/** Flag set when the lane is the same as in the previous record. **/
+	private static final int SAME_LANE = 1;
+
+	/** Flag set when the sequence number follows the one of the previous record. **/
+	private static final int NEXT_SEQUENCE = 2;
+
+	/** Flag set when the timestamp is the same as in the previous record. **/
+	private static final int SAME_TIME = 4;
+
+	/** Size of the buffers of the encoder and decoder. **/
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** Longest encoding of a record: header and three 10 byte varints. **/
+	private static final int MAX_RECORD_SIZE = 31;
+
+	/* Constants should be place before this line */
+
+	/**
+	 * Writes rolls to a stream in the telemetry format.
+	 */
+	public static final class Encoder implements Flushable {
+		/** Stream receiving the encoded rolls. **/
+		private final OutputStream out;
+
+		/** Encoded bytes not written to the stream yet. **/
+		private final byte[] buffer;
+
+		/** Number of bytes in the buffer. **/
+		private int position;
+
+		/** Lane of the previous record. **/
+		private int lane;
+
+		/** Sequence number of the previous record. **/
+		private long sequence;
+
+		/** Timestamp of the previous record. **/
+		private long timestamp;
+
+		/**
+		 * Initializes the encoder and writes the magic number.
+		 *
+		 * @param out - Stream receiving the encoded rolls.
+		 */
+		public Encoder(OutputStream out) {
+			this.out = out;
+			buffer = new byte[BUFFER_SIZE];
+			for (int shift = 24; shift >= 0; shift -= 8)
+				buffer[position++] = (byte) (MAGIC >>> shift);
+		}
+
+		/**
+		 * Encodes a roll.
+		 *
+		 * @param lane - Lane id the roll was made on.
+		 * @param sequence - Sequence number of the roll.
+		 * @param symbol - Roll symbol ("X", "/", "-" or "1" to "9").
+		 * @param timestamp - Time of the roll, in milliseconds since the epoch.
+		 * @throws IOException The stream could not be written.
+		 * @throws IllegalArgumentException The symbol is not a valid roll symbol.
+		 */
+		public void write(int lane, long sequence, char symbol, long timestamp) throws IOException,
+				IllegalArgumentException {
+			int code = code(symbol);
+			if (position + MAX_RECORD_SIZE > buffer.length)
+				flushBuffer();
+
+			int flags = 0;
+			if (lane == this.lane)
+				flags |= SAME_LANE;
+			if (sequence == this.sequence + 1)
+				flags |= NEXT_SEQUENCE;
+			if (timestamp == this.timestamp)
+				flags |= SAME_TIME;
+			buffer[position++] = (byte) (code << 4 | flags);
+			if ((flags & SAME_LANE) == 0)
+				writeVarint((long) lane - this.lane);
+			if ((flags & NEXT_SEQUENCE) == 0)
+				writeVarint(sequence - this.sequence);
+			if ((flags & SAME_TIME) == 0)
+				writeVarint(timestamp - this.timestamp);
+			this.lane = lane;
+			this.sequence = sequence;
+			this.timestamp = timestamp;
+		}
+
+		/**
+		 * Writes a difference as a zigzag varint.
+		 *
+		 * @param delta - Difference to write.
+		 */
+		private void writeVarint(long delta) {
+			long value = (delta << 1) ^ (delta >> 63);
+			while ((value & ~0x7FL) != 0) {
+				buffer[position++] = (byte) (value | 0x80);
+				value >>>= 7;
+			}
+			buffer[position++] = (byte) value;
+		}
+
+		/**
+		 * Writes the buffered bytes to the stream.
+		 *
+		 * @throws IOException The stream could not be written.
+		 */
+		private void flushBuffer() throws IOException {
+			out.write(buffer, 0, position);
+			position = 0;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			flushBuffer();
+			out.flush();
+		}
+	}
+
+	/**
+	 * Reads rolls from a stream in the telemetry format, one record at a time. Decoding allocates
+	 * nothing: the fields of the current record are kept in the decoder, and its roll can be
+	 * applied straight to a game.
+	 */
+	public static final class Decoder {
+		/** Stream of encoded rolls. **/
+		private final InputStream in;
+
+		/** Bytes read from the stream. **/
+		private final byte[] buffer;
+
+		/** Position of the next byte to decode. **/
+		private int position;
+
+		/** Number of bytes in the buffer. **/
+		private int limit;
+
+		/** Whether the magic number has been checked. **/
+		private boolean started;
+
+		/** Lane of the current record. **/
+		private int lane;
+
+		/** Sequence number of the current record. **/
+		private long sequence;
+
+		/** Timestamp of the current record. **/
+		private long timestamp;
+
+		/** Roll code of the current record. **/
+		private int code;
+
+		/**
+		 * Initializes the decoder.
+		 *
+		 * @param in - Stream of encoded rolls.
+		 */
+		public Decoder(InputStream in) {
+			this.in = in;
+			buffer = new byte[BUFFER_SIZE];
+		}
+
+		/**
+		 * Reads the next byte of the stream.
+		 *
+		 * @param required - Whether the end of the stream is an error.
+		 * @return Next byte, or -1 at the end of the stream.
+		 * @throws IOException The stream could not be read, or ended in the middle of a record.
+		 */
+		private int readByte(boolean required) throws IOException {
+			if (position == limit) {
+				limit = in.read(buffer);
+				position = 0;
+				if (limit <= 0) {
+					limit = 0;
+					if (required)
+						throw new EOFException("Telemetry stream ends in the middle of a record.");
+					return -1;
+				}
+			}
+			return buffer[position++] & 0xFF;
+		}
+
+		/**
+		 * Reads a difference written as a zigzag varint.
+		 *
+		 * @return Difference.
+		 * @throws IOException The stream could not be read, or the varint is malformed.
+		 */
+		private long readVarint() throws IOException {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				int b = readByte(true);
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+					return (value >>> 1) ^ -(value & 1);
+			}
+			throw new IOException("Malformed varint in telemetry stream.");
+		}
+
+		/**
+		 * Decodes the next record.
+		 *
+		 * @return True if a record was decoded, false at the end of the stream.
+		 * @throws IOException The stream could not be read or is not a valid telemetry stream.
+		 */
+		public boolean next() throws IOException {
+			if (!started) {
+				int magic = 0;
+				for (int i = 0; i < 4; i++)
+					magic = magic << 8 | readByte(true);
+				if (magic != MAGIC)
+					throw new IOException("Not a telemetry stream.");
+				started = true;
+			}
+
+			int header = readByte(false);
+			if (header < 0)
+				return false;
+			code = header >>> 4;
+			if (code > SPARE)
+				throw new IOException("Invalid roll code in telemetry stream: " + code);
+			lane = (header & SAME_LANE) != 0 ? lane : (int) (lane + readVarint());
+			sequence = (header & NEXT_SEQUENCE) != 0 ? sequence + 1 : sequence + readVarint();
+			if ((header & SAME_TIME) == 0)
+				timestamp += readVarint();
+			return true;
+		}
+
+		/**
+		 * Applies the roll of the current record to a game.
+		 *
+		 * @param game - Game the roll is applied to.
+		 * @throws IllegalStateException The roll cannot be applied to the current frame.
+		 */
+		public void applyTo(BowlingScore game) throws IllegalStateException {
+			switch (code) {
+				case STRIKE :
+					game.processStrike();
+					break;
+				case SPARE :
+					game.processSpare();
+					break;
+				case MISS :
+					game.processMiss();
+					break;
+				default :
+					game.processNumber(code);
+					break;
+			}
+		}
+
+		/**
+		 * Gets the lane id of the current record.
+		 *
+		 * @return Lane id.
+		 */
+		public int getLane() {
+			return lane;
+		}
+
+		/**
+		 * Gets the sequence number of the current record.
+		 *
+		 * @return Sequence number.
+		 */
+		public long getSequence() {
+			return sequence;
+		}
+
+		/**
+		 * Gets the timestamp of the current record.
+		 *
+		 * @return Time of the roll, in milliseconds since the epoch.
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		/**
+		 * Gets the roll code of the current record.
+		 *
+		 * @return MISS, STRIKE, SPARE or the number of pins knocked down.
+		 */
+		public int getCode() {
+			return code;
+		}
+
+		/**
+		 * Gets the roll symbol of the current record.
+		 *
+		 * @return Roll symbol ("X", "/", "-" or "1" to "9").
+		 */
+		public char getSymbol() {
+			return symbol(code);
+		}
+	}
+
+	/**
+	 * Prevents instantiation, the format is used through its encoder and decoder.
+	 */
+	private RollTelemetry() {
+	}
+
+	/**
+	 * Gets the roll code of a roll symbol.
+	 *
+	 * @param symbol - Roll symbol ("X", "/", "-" or "1" to "9").
+	 * @return Roll code.
+	 * @throws IllegalArgumentException The symbol is not a valid roll symbol.
+	 */
+	public static int code(char symbol) throws IllegalArgumentException {
+		switch (symbol) {
+			case 'X' :
+				return STRIKE;
+			case '/' :
+				return SPARE;
+			case '-' :
+				return MISS;
+			default :
+				if (symbol < '1' || symbol > '9')
+					throw new IllegalArgumentException("Invalid roll symbol: " + symbol);
+				return symbol - '0';
+		}
+	}
+
+	/**
+	 * Gets the roll symbol of a roll code.
+	 *
+	 * @param code - Roll code.
+	 * @return Roll symbol ("X", "/", "-" or "1" to "9").
+	 */
+	public static char symbol(int code) {
+		switch (code) {
+			case STRIKE :
+				return 'X';
+			case SPARE :
+				return '/';
+			case MISS :
+				return '-';
+			default :
+				return (char) ('0' + code);
+		}
+	}
+}
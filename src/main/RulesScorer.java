@@ -0,0 +1,387 @@
+package main;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scorer specialized for a {@link BowlingRules} variant. Every state a game of the variant can
+ * be in (frame, ball, pins standing, pending bonuses and final frame bonus balls) is enumerated
+ * once when the scorer is built, along with the next state and the points gained for every
+ * possible roll from it. Scoring a roll is then two table lookups, whatever the rules are, so it
+ * costs the same as a scorer written by hand for the variant.
+ *
+ * A game is a single long, holding the running total in its high half and the state id in its
+ * low half. Rolls are pin counts, and knocking down every standing pin (or the strike pins of a
+ * no-tap variant with the first ball of a rack) counts as a strike or spare.
+ *
+ * @author Roger Delacruz
+ */
+public final class RulesScorer {
+
+	/** Marks a roll that cannot be made from a state. **/
+	private static final int INVALID = -1;
+
+	/* Constants should be place before this line */
+
+	/**
+	 * State of a game while the states are being enumerated.
+	 */
+	private static final class Node {
+		/** Frame index. **/
+		private int frame;
+
+		/** Ball index within the frame. **/
+		private int ball;
+
+		/** Pins standing in the current rack. **/
+		private int standing;
+
+		/** Whether no ball has been rolled at the current rack. **/
+		private boolean fresh;
+
+		/** Number of earlier clears waiting on each of the next rolls. **/
+		private int[] pending;
+
+		/** Bonus balls left in the final frame, or -1 before any is earned. **/
+		private int bonusLeft;
+
+		/** Whether the game is finished. **/
+		private boolean finished;
+
+		/**
+		 * Builds the key identifying equal states.
+		 *
+		 * @return State key.
+		 */
+		private String key() {
+			if (finished)
+				return "finished";
+			return frame + "," + ball + "," + standing + "," + fresh + "," + bonusLeft + ","
+					+ Arrays.toString(pending);
+		}
+
+		/**
+		 * Copies the state.
+		 *
+		 * @return Copy of the state.
+		 */
+		private Node copy() {
+			Node node = new Node();
+			node.frame = frame;
+			node.ball = ball;
+			node.standing = standing;
+			node.fresh = fresh;
+			node.pending = pending.clone();
+			node.bonusLeft = bonusLeft;
+			node.finished = finished;
+			return node;
+		}
+	}
+
+	/** Rules the scorer was built from. **/
+	private final BowlingRules rules;
+
+	/** Number of table entries per state (one per possible pin count). **/
+	private final int stride;
+
+	/** Next state for each state and pin count, or INVALID. **/
+	private final int[] next;
+
+	/** Points gained for each state and pin count. **/
+	private final short[] gain;
+
+	/** Pins standing in each state. **/
+	private final byte[] standing;
+
+	/** Whether the current rack is fresh in each state. **/
+	private final boolean[] fresh;
+
+	/** Frame index of each state. **/
+	private final byte[] frames;
+
+	/** Id of the finished state. **/
+	private final int finishedState;
+
+	/**
+	 * Builds the scorer tables for the given rules.
+	 *
+	 * @param rules - Rules of the variant.
+	 */
+	public RulesScorer(BowlingRules rules) {
+		this.rules = rules;
+		stride = rules.getPins() + 1;
+
+		// Enumerates every reachable state breadth first, starting from a new game
+		Node start = new Node();
+		start.standing = rules.getPins();
+		start.fresh = true;
+		start.pending = new int[Math.max(1, rules.getMaxBonusBalls())];
+		start.bonusLeft = -1;
+
+		Map<String, Integer> ids = new HashMap<String, Integer>();
+		List<Node> nodes = new ArrayList<Node>();
+		Deque<Node> queue = new ArrayDeque<Node>();
+		ids.put(start.key(), 0);
+		nodes.add(start);
+		queue.add(start);
+		List<int[]> transitions = new ArrayList<int[]>();
+		List<short[]> gains = new ArrayList<short[]>();
+
+		while (!queue.isEmpty()) {
+			Node node = queue.poll();
+			int[] nextRow = new int[stride];
+			short[] gainRow = new short[stride];
+			Arrays.fill(nextRow, INVALID);
+			for (int pins = 0; pins <= node.standing && !node.finished; pins++) {
+				Node target = node.copy();
+				gainRow[pins] = (short) roll(target, pins);
+				String key = target.key();
+				Integer id = ids.get(key);
+				if (id == null) {
+					id = nodes.size();
+					ids.put(key, id);
+					nodes.add(target);
+					queue.add(target);
+				}
+				nextRow[pins] = id;
+			}
+			transitions.add(nextRow);
+			gains.add(gainRow);
+		}
+
+		// Flattens the rows into the lookup tables
+		int count = nodes.size();
+		next = new int[count * stride];
+		gain = new short[count * stride];
+		standing = new byte[count];
+		fresh = new boolean[count];
+		frames = new byte[count];
+		int finished = INVALID;
+		for (int i = 0; i < count; i++) {
+			System.arraycopy(transitions.get(i), 0, next, i * stride, stride);
+			System.arraycopy(gains.get(i), 0, gain, i * stride, stride);
+			Node node = nodes.get(i);
+			standing[i] = (byte) node.standing;
+			fresh[i] = node.fresh;
+			frames[i] = (byte) Math.min(node.frame, rules.getFrames() - 1);
+			if (node.finished)
+				finished = i;
+		}
+		finishedState = finished;
+	}
+
+	/**
+	 * Applies a roll to a state while the states are enumerated. This is the only place where the
+	 * rules are looked at.
+	 *
+	 * @param node - State to update in place.
+	 * @param pins - Number of pins knocked down.
+	 * @return Points gained by the roll, including pending bonuses.
+	 */
+	private int roll(Node node, int pins) {
+		boolean cleared = pins == node.standing || (node.fresh && pins >= rules.getStrikePins());
+		int credited = cleared ? node.standing : pins;
+		int points = credited * (1 + node.pending[0]);
+
+		// Shifts the pending bonuses by one roll
+		System.arraycopy(node.pending, 1, node.pending, 0, node.pending.length - 1);
+		node.pending[node.pending.length - 1] = 0;
+
+		boolean lastFrame = node.frame == rules.getFrames() - 1;
+		if (node.bonusLeft >= 0) {
+			// Bonus balls of the final frame
+			if (--node.bonusLeft == 0)
+				node.finished = true;
+			else
+				setRack(node, cleared, credited);
+		} else if (cleared) {
+			int bonus = rules.getBonusBalls(node.ball);
+			if (!lastFrame) {
+				for (int i = 0; i < bonus; i++)
+					node.pending[i]++;
+				nextFrame(node);
+			} else if (bonus > 0) {
+				node.bonusLeft = bonus;
+				setRack(node, true, credited);
+			} else {
+				node.finished = true;
+			}
+		} else if (node.ball + 1 == rules.getBallsPerFrame()) {
+			if (lastFrame)
+				node.finished = true;
+			else
+				nextFrame(node);
+		} else {
+			node.ball++;
+			setRack(node, false, credited);
+		}
+
+		if (node.finished) {
+			Arrays.fill(node.pending, 0);
+			node.ball = 0;
+			node.standing = 0;
+		}
+		return points;
+	}
+
+	/**
+	 * Moves a state to the first ball of the next frame.
+	 *
+	 * @param node - State to update in place.
+	 */
+	private void nextFrame(Node node) {
+		node.frame++;
+		node.ball = 0;
+		setRack(node, true, 0);
+	}
+
+	/**
+	 * Updates the rack of a state after a roll.
+	 *
+	 * @param node - State to update in place.
+	 * @param reset - Whether a full rack is set up.
+	 * @param credited - Pins credited to the roll.
+	 */
+	private void setRack(Node node, boolean reset, int credited) {
+		if (reset) {
+			node.standing = rules.getPins();
+			node.fresh = true;
+		} else {
+			node.standing -= credited;
+			node.fresh = false;
+		}
+	}
+
+	/**
+	 * Gets the rules the scorer was built from.
+	 *
+	 * @return Rules of the variant.
+	 */
+	public BowlingRules getRules() {
+		return rules;
+	}
+
+	/**
+	 * Gets the number of distinct states a game of the variant can be in.
+	 *
+	 * @return Number of states.
+	 */
+	public int getNumberOfStates() {
+		return standing.length;
+	}
+
+	/**
+	 * Gets a game before its first roll.
+	 *
+	 * @return New game.
+	 */
+	public long newGame() {
+		return 0;
+	}
+
+	/**
+	 * Applies a roll to a game.
+	 *
+	 * @param game - Current game.
+	 * @param pins - Number of pins knocked down.
+	 * @return Game after the roll.
+	 * @throws IllegalStateException The roll cannot be made from the current state.
+	 */
+	public long roll(long game, int pins) throws IllegalStateException {
+		int entry = (int) game * stride + pins;
+		if (pins < 0 || pins >= stride || next[entry] == INVALID)
+			throw new IllegalStateException("Cannot knock down " + pins + " pins from this state.");
+		return (((game >>> 32) + gain[entry]) << 32) | next[entry];
+	}
+
+	/**
+	 * Applies a roll symbol, using the same notation as the application input.
+	 *
+	 * @param game - Current game.
+	 * @param symbol - Roll symbol ("X", "/", "-" or "1" to "9").
+	 * @return Game after the roll.
+	 * @throws IllegalStateException The roll cannot be made from the current state.
+	 * @throws IllegalArgumentException The symbol is not a valid roll symbol.
+	 */
+	public long symbol(long game, char symbol) throws IllegalStateException,
+			IllegalArgumentException {
+		int state = (int) game;
+		switch (symbol) {
+			case 'X' :
+				if (!fresh[state])
+					throw new IllegalStateException("There should zero rolls prior to a strike.");
+				return roll(game, standing[state]);
+			case '/' :
+				if (fresh[state])
+					throw new IllegalStateException("There should be one roll prior to a spare.");
+				return roll(game, standing[state]);
+			case '-' :
+				return roll(game, 0);
+			default :
+				if (symbol < '1' || symbol > '9')
+					throw new IllegalArgumentException("Invalid roll symbol: " + symbol);
+				return roll(game, symbol - '0');
+		}
+	}
+
+	/**
+	 * Scores a sequence of pin counts as a single game.
+	 *
+	 * @param rolls - Pin counts.
+	 * @param from - Index of the first roll.
+	 * @param to - Index after the last roll.
+	 * @return Total score of the rolls.
+	 * @throws IllegalStateException Some roll cannot be made.
+	 */
+	public int score(int[] rolls, int from, int to) throws IllegalStateException {
+		long game = 0;
+		for (int i = from; i < to; i++)
+			game = roll(game, rolls[i]);
+		return total(game);
+	}
+
+	/**
+	 * Gets the running total of a game.
+	 *
+	 * @param game - Current game.
+	 * @return Total score so far.
+	 */
+	public static int total(long game) {
+		return (int) (game >>> 32);
+	}
+
+	/**
+	 * Gets the index of the frame the next roll of a game belongs to.
+	 *
+	 * @param game - Current game.
+	 * @return Frame index, starting at 0.
+	 */
+	public int frame(long game) {
+		return frames[(int) game];
+	}
+
+	/**
+	 * Gets the number of pins standing for the next roll of a game.
+	 *
+	 * @param game - Current game.
+	 * @return Pins standing.
+	 */
+	public int pinsStanding(long game) {
+		return standing[(int) game];
+	}
+
+	/**
+	 * Checks whether a game is finished.
+	 *
+	 * @param game - Current game.
+	 * @return True if no more rolls can be made, false otherwise.
+	 */
+	public boolean isFinished(long game) {
+		return (int) game == finishedState;
+	}
+}
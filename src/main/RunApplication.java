@@ -1,5 +1,15 @@
 package main;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Main class where input is read from user, parsed. and corresponding output is printed.
@@ -39,16 +49,19 @@ public class RunApplication {
 	// Line separator
 	private static final String LINE_SEP = "---------------------------------------------------------";
 	
+	// Default port of the scoring service
+	private static final int DEFAULT_PORT = 8080;
+	
 	
 	private Scanner scanner;
-	private BowlingScore game;
+	private ScoreCache cache;
 	
 	/**
 	 * Initializes the built-in scanner which will be used to read user input.
 	 */
 	public RunApplication() {
 		scanner = new Scanner(System.in);		// Reads from standard input
-		game = new BowlingScore();
+		cache = new ScoreCache();		// Repeated lines are not scored again
 	}
 	
 	/**
@@ -78,7 +91,7 @@ public class RunApplication {
 	 * 
 	 * @return True if input string is valid, false otherwise.
 	 */
-	private static boolean inputIsValid(String inputStr) {
+	static boolean inputIsValid(String inputStr) {
 		for (int i = 0; i < inputStr.length(); i++) {
 			char c = inputStr.charAt(i);
 			if (c != 'X' && c != '/' && c != '-' && c != '1' && c != '2' 
@@ -109,36 +122,143 @@ public class RunApplication {
 			inputStr = readLine();
 		}
 		
-		// Parses input and runs appropriate bowling methods
-		for (int i = 0; i < inputStr.length(); i++) {
-			char c = inputStr.charAt(i);
-			switch (c) {
-				case 'X' :
-					game.processStrike();
-					break;
-				case '/' :
-					game.processSpare();
-					break;
-				case '-' :
-					game.processMiss();
-					break;
-				default :	// Because input is valid, this will always be a number
-					int num = Integer.parseUnsignedInt(String.valueOf(c));
-					game.processNumber(num);
-					break;
-			}
-		}
-		
-		// Calculates final score after game is finished
-		totalScore = game.calculateTotalScore();
-		
-		// Starts a new game
-		game = new BowlingScore();
+		// Parses input and runs appropriate bowling methods, unless the line was already scored
+		totalScore = cache.score(inputStr);
 		
 		return totalScore;
 	}
 
-	public static void main(String[] args) {
+	/**
+	 * Runs the embedded HTTP scoring service until the process is stopped.
+	 * 
+	 * @param port - Port to listen on.
+	 * @throws IOException The server could not be started.
+	 */
+	private static void serve(int port) throws IOException {
+		ScoringServer server = new ScoringServer(new InetSocketAddress(port),
+				Runtime.getRuntime().availableProcessors(), new ScoreCache());
+		server.start();
+		System.out.println("Scoring service listening on port " + server.getPort() + "...");
+	}
+
+	/**
+	 * Follows the lane log files of a directory and prints every score event, until the process
+	 * is stopped.
+	 * 
+	 * @param directory - Directory of the lane log files.
+	 * @throws IOException The directory could not be watched or a log file could not be read.
+	 */
+	private static void follow(String directory) throws IOException {
+		LaneLogFollower follower = new LaneLogFollower(Paths.get(directory), new Consumer<ScoreEvent>() {
+			@Override
+			public void accept(ScoreEvent event) {
+				System.out.println(event);
+			}
+		});
+		try {
+			while (true)
+				follower.poll(1, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			follower.close();
+		}
+	}
+
+	/**
+	 * Scores the league sessions read from standard input, and prints the report of each one.
+	 * 
+	 * @param scorer - League scorer, with the handicap rules to apply.
+	 * @throws IOException The input could not be read.
+	 */
+	private static void league(LeagueScorer scorer) throws IOException {
+		Reader in = new InputStreamReader(System.in, StandardCharsets.US_ASCII);
+		try {
+			scorer.run(in, new Consumer<LeagueScorer.Session>() {
+				@Override
+				public void accept(LeagueScorer.Session session) {
+					System.out.println(session);
+				}
+			});
+		} catch (IllegalArgumentException e) {
+			System.out.println("Error: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Scores a file of game lines with several worker processes, and prints one result per line.
+	 * 
+	 * @param workers - Number of worker processes.
+	 * @param input - Input file of game lines.
+	 * @throws IOException The files could not be read or written.
+	 */
+	private static void shard(int workers, String input) throws IOException {
+		Path workDir = Files.createTempDirectory("shards");
+		try {
+			new ShardedScorer(Paths.get(input), workDir, workers).run(System.out);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			Files.deleteIfExists(workDir.resolve(ShardedScorer.QUEUE_FILE));
+			Files.deleteIfExists(workDir.resolve(ShardedScorer.RESULTS_FILE));
+			Files.delete(workDir);
+		}
+	}
+
+	/**
+	 * Reconciles a file of scorecards with a file of roll logs, and prints every discrepancy.
+	 * 
+	 * @param logs - File of roll logs, one game per line.
+	 * @param scorecards - File of scorecards, one game per line.
+	 * @throws IOException The files could not be read, or the spill files could not be written.
+	 */
+	private static void reconcile(String logs, String scorecards) throws IOException {
+		Path spillDir = Files.createTempDirectory("reconcile");
+		try (Reader logReader = Files.newBufferedReader(Paths.get(logs), StandardCharsets.US_ASCII);
+				Reader cardReader = Files.newBufferedReader(Paths.get(scorecards), StandardCharsets.US_ASCII)) {
+			long matches = new Reconciler(spillDir).reconcile(logReader, cardReader,
+					new Consumer<Reconciler.Discrepancy>() {
+						@Override
+						public void accept(Reconciler.Discrepancy discrepancy) {
+							System.out.println(discrepancy);
+						}
+					});
+			System.out.println(matches + " games reconciled.");
+		} catch (IllegalArgumentException e) {
+			System.out.println("Error: " + e.getMessage());
+		} finally {
+			Files.delete(spillDir);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		// Non-interactive modes
+		if (args.length > 0 && args[0].equals("--serve")) {
+			serve(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT);
+			return;
+		} else if (args.length > 0 && args[0].equals("--batch")) {
+			new ScoringPipeline().run(System.in, System.out);	// One result per input line
+			return;
+		} else if (args.length > 2 && args[0].equals("--ingest")) {
+			// One output file per input file, followed by a summary
+			System.out.println(new DirectoryIngester().ingest(Paths.get(args[1]), Paths.get(args[2])));
+			return;
+		} else if (args.length > 0 && args[0].equals("--league")) {
+			league(args.length > 2 ? new LeagueScorer(Integer.parseInt(args[1]),
+					Integer.parseInt(args[2]), LeagueScorer.DEFAULT_SESSIONS_IN_FLIGHT)
+					: new LeagueScorer());
+			return;
+		} else if (args.length > 2 && args[0].equals("--shards")) {
+			shard(Integer.parseInt(args[1]), args[2]);
+			return;
+		} else if (args.length > 1 && args[0].equals("--follow")) {
+			follow(args[1]);
+			return;
+		} else if (args.length > 2 && args[0].equals("--reconcile")) {
+			reconcile(args[1], args[2]);
+			return;
+		}
+		
 		RunApplication app = new RunApplication();
 		
 		// Prints fancy splash text in the beginning, along with instructions
@@ -155,7 +275,6 @@ public class RunApplication {
 					System.out.println(LINE_SEP + "\r");
 				} catch (IllegalStateException e) {
 					System.out.println("Error: You attempted to perform an illegal operation...");
-					app.game = new BowlingScore();		// Resets game state
 				}
 			}
 		} catch (QuitException e) {
@@ -0,0 +1,294 @@
+package main;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the total scores of game lines, for inputs where the same lines come up
+ * again and again (perfect games, all-gutter practice lines, test games...).
+ *
+ * A line is encoded as a 128 bit key, 4 bits per roll symbol, so that looking it up allocates
+ * nothing and compares two longs per entry. The table has a fixed number of sets of a few entries
+ * each (set-associative), and a line can only be stored in the entries of the set its key hashes
+ * to. When the set is full, an entry is evicted with the CLOCK algorithm: the hand of the set
+ * skips (and clears the reference bit of) entries hit since it last passed them.
+ *
+ * Readers never lock. Each set has a version that writers make odd while they update the set,
+ * and a reader only trusts what it read if the version was even and unchanged around its reads
+ * (seqlock). A reader that races with a writer, or a writer that races with another writer of
+ * the same set, simply treats the line as not cached.
+ *
+ * @author Roger Delacruz
+ */
+public class ScoreCache {
+
+	/** Default number of entries of the cache. **/
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	/** Number of entries per set. **/
+	private static final int WAYS = 4;
+
+	/** Most roll symbols in a line that can be cached. **/
+	private static final int MAX_SYMBOLS = 32;
+
+	/** Score stored in entries that do not hold a line. **/
+	private static final int EMPTY = -1;
+
+	/** Key given to lines that cannot be cached. **/
+	private static final int UNCACHEABLE = -1;
+
+	/** Gives atomic access to the versions of the sets. **/
+	private static final VarHandle VERSIONS = MethodHandles.arrayElementVarHandle(int[].class);
+
+	/* Constants should be place before this line */
+
+	/** Low half of the key of each entry (first 16 symbols). **/
+	private final long[] lowKeys;
+
+	/** High half of the key of each entry (remaining symbols). **/
+	private final long[] highKeys;
+
+	/** Total score of each entry, or EMPTY. **/
+	private final int[] scores;
+
+	/** Whether each entry was hit since the CLOCK hand last passed it. **/
+	private final boolean[] referenced;
+
+	/** Position of the CLOCK hand within each set. **/
+	private final byte[] hands;
+
+	/** Version of each set, odd while a writer updates it. **/
+	private final int[] versions;
+
+	/** Mask turning a hash into a set index. **/
+	private final int mask;
+
+	/** Number of lookups that found the line. **/
+	private final LongAdder hits;
+
+	/** Number of lookups that had to score the line. **/
+	private final LongAdder misses;
+
+	/**
+	 * Initializes the cache with the default capacity.
+	 */
+	public ScoreCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Initializes the cache.
+	 *
+	 * @param capacity - Number of entries, rounded up to a power of two of at least 4.
+	 */
+	public ScoreCache(int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30)
+			throw new IllegalArgumentException("Invalid cache capacity: " + capacity);
+		int sets = Math.max(1, Integer.highestOneBit(capacity - 1) * 2 / WAYS);
+		lowKeys = new long[sets * WAYS];
+		highKeys = new long[sets * WAYS];
+		scores = new int[sets * WAYS];
+		Arrays.fill(scores, EMPTY);
+		referenced = new boolean[sets * WAYS];
+		hands = new byte[sets];
+		versions = new int[sets];
+		mask = sets - 1;
+		hits = new LongAdder();
+		misses = new LongAdder();
+	}
+
+	/**
+	 * Gets the 4 bit code of a roll symbol (never 0, which marks the end of a key).
+	 *
+	 * @param symbol - Roll symbol.
+	 * @return Symbol code, or UNCACHEABLE if it is not a roll symbol.
+	 */
+	private static int code(char symbol) {
+		switch (symbol) {
+			case 'X' :
+				return 10;
+			case '/' :
+				return 11;
+			case '-' :
+				return 12;
+			default :
+				return symbol >= '1' && symbol <= '9' ? symbol - '0' : UNCACHEABLE;
+		}
+	}
+
+	/**
+	 * Gets the total score of a line, scoring it with {@link BowlingScore} if it is not cached
+	 * yet. Invalid lines are never cached, and fail the same way they would without the cache.
+	 *
+	 * @param line - Sequence of roll symbols for a single game.
+	 * @return Total score of the line.
+	 * @throws IllegalStateException Some roll cannot be applied to its frame.
+	 * @throws IllegalArgumentException Some character is not a valid roll symbol.
+	 */
+	public int score(CharSequence line) throws IllegalStateException, IllegalArgumentException {
+		// Encodes the line, 16 symbols per long
+		long low = 0;
+		long high = 0;
+		int length = line.length();
+		boolean cacheable = length <= MAX_SYMBOLS;
+		for (int i = 0; i < length && cacheable; i++) {
+			int code = code(line.charAt(i));
+			if (code == UNCACHEABLE)
+				cacheable = false;
+			else if (i < 16)
+				low |= (long) code << (i * 4);
+			else
+				high |= (long) code << ((i - 16) * 4);
+		}
+		if (!cacheable || length == 0) {
+			misses.increment();
+			return BowlingScore.fromLine(line).calculateTotalScore();
+		}
+
+		int set = hash(low, high) & mask;
+		int score = lookup(set, low, high);
+		if (score != EMPTY) {
+			hits.increment();
+			return score;
+		}
+		misses.increment();
+		score = BowlingScore.fromLine(line).calculateTotalScore();
+		store(set, low, high, score);
+		return score;
+	}
+
+	/**
+	 * Mixes the halves of a key into a well spread hash.
+	 *
+	 * @param low - Low half of the key.
+	 * @param high - High half of the key.
+	 * @return Hash of the key.
+	 */
+	private static int hash(long low, long high) {
+		long h = low * 0x9E3779B97F4A7C15L + high;
+		h ^= h >>> 33;
+		h *= 0xC2B2AE3D27D4EB4FL;
+		h ^= h >>> 29;
+		return (int) h;
+	}
+
+	/**
+	 * Looks a key up in its set, without locking.
+	 *
+	 * @param set - Index of the set.
+	 * @param low - Low half of the key.
+	 * @param high - High half of the key.
+	 * @return Cached score, or EMPTY if the key is not cached or a writer got in the way.
+	 */
+	private int lookup(int set, long low, long high) {
+		int version = (int) VERSIONS.getAcquire(versions, set);
+		if ((version & 1) != 0)
+			return EMPTY;		// Writer in progress
+		int score = EMPTY;
+		int found = -1;
+		for (int i = set * WAYS; i < set * WAYS + WAYS; i++) {
+			if (lowKeys[i] == low && highKeys[i] == high) {
+				score = scores[i];
+				found = i;
+				break;
+			}
+		}
+
+		// Reads must be done before the version is checked again
+		VarHandle.loadLoadFence();
+		if ((int) VERSIONS.getVolatile(versions, set) != version || found < 0)
+			return EMPTY;
+		referenced[found] = true;	// Racy on purpose, a lost update only costs an eviction
+		return score;
+	}
+
+	/**
+	 * Stores a score in the set of its key, evicting an entry with the CLOCK hand if the set is
+	 * full. Nothing is stored if another writer is updating the set.
+	 *
+	 * @param set - Index of the set.
+	 * @param low - Low half of the key.
+	 * @param high - High half of the key.
+	 * @param score - Score of the line.
+	 */
+	private void store(int set, long low, long high, int score) {
+		int version = (int) VERSIONS.getVolatile(versions, set);
+		if ((version & 1) != 0 || !VERSIONS.compareAndSet(versions, set, version, version + 1))
+			return;
+		try {
+			int first = set * WAYS;
+			int hand = hands[set];
+			int victim = -1;
+			for (int i = first; i < first + WAYS; i++) {
+				if (scores[i] == EMPTY) {
+					victim = i;
+					break;
+				}
+			}
+			while (victim < 0) {
+				if (referenced[first + hand])
+					referenced[first + hand] = false;
+				else
+					victim = first + hand;
+				hand = (hand + 1) % WAYS;
+			}
+			hands[set] = (byte) hand;
+
+			// Entry is written while the version is odd, so readers ignore it until it is complete
+			VarHandle.storeStoreFence();
+			lowKeys[victim] = low;
+			highKeys[victim] = high;
+			scores[victim] = score;
+			referenced[victim] = false;
+		} finally {
+			VERSIONS.setRelease(versions, set, version + 2);
+		}
+	}
+
+	/**
+	 * Gets the number of entries of the cache.
+	 *
+	 * @return Capacity.
+	 */
+	public int getCapacity() {
+		return scores.length;
+	}
+
+	/**
+	 * Gets the number of lines whose score was found in the cache.
+	 *
+	 * @return Number of hits.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the number of lines that had to be scored, because they were not cached or could not
+	 * be cached.
+	 *
+	 * @return Number of misses.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Gets the share of lines whose score was found in the cache.
+	 *
+	 * @return Hit rate, between 0 and 1.
+	 */
+	public double getHitRate() {
+		long hitCount = hits.sum();
+		long total = hitCount + misses.sum();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	@Override
+	public String toString() {
+		return "ScoreCache[capacity=" + getCapacity() + ", hits=" + getHits() + ", misses="
+				+ getMisses() + "]";
+	}
+}
@@ -0,0 +1,85 @@
+package main;
+
+/**
+ * A change to the score of a game on a lane, emitted after a roll has been applied.
+ *
+ * @author Roger Delacruz
+ */
+public class ScoreEvent {
+
+	/**
+	 * Identifies the kind of change as either a FRAME_CLOSED (the frame can no longer accept
+	 * rolls, its score may still be waiting on a bonus), a BONUS_RESOLVED (the bonus of an earlier
+	 * spare or strike is now known, so the frame score is final), or a GAME_FINISHED (the final
+	 * frame is done and the score is the total of the game).
+	 */
+	public static enum Type { FRAME_CLOSED, BONUS_RESOLVED, GAME_FINISHED }
+
+	/** Kind of change. **/
+	private final Type type;
+
+	/** Lane id of the game. **/
+	private final int lane;
+
+	/** Frame number the change applies to (1 to 10). **/
+	private final int frame;
+
+	/** Cumulative score of the game at the end of the frame. **/
+	private final int score;
+
+	/**
+	 * Initializes the score event.
+	 *
+	 * @param type - Kind of change.
+	 * @param lane - Lane id of the game.
+	 * @param frame - Frame number the change applies to.
+	 * @param score - Cumulative score of the game at the end of the frame.
+	 */
+	public ScoreEvent(Type type, int lane, int frame, int score) {
+		this.type = type;
+		this.lane = lane;
+		this.frame = frame;
+		this.score = score;
+	}
+
+	/**
+	 * Gets the kind of change.
+	 *
+	 * @return Event type.
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the lane id of the game.
+	 *
+	 * @return Lane id.
+	 */
+	public int getLane() {
+		return lane;
+	}
+
+	/**
+	 * Gets the frame number the change applies to.
+	 *
+	 * @return Frame number (1 to 10).
+	 */
+	public int getFrame() {
+		return frame;
+	}
+
+	/**
+	 * Gets the cumulative score of the game at the end of the frame.
+	 *
+	 * @return Cumulative score.
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	@Override
+	public String toString() {
+		return type + "[lane=" + lane + ", frame=" + frame + ", score=" + score + "]";
+	}
+}
@@ -0,0 +1,276 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Stream API for embedding the scorer: turns text holding one game per line into an
+ * {@link IntStream} of total scores, one per line, in line order (the same results as
+ * {@link ScoringPipeline}, with {@link #INVALID} for a line that is not a valid game).
+ *
+ * The streams are backed by spliterators that split the text on line boundaries, so that
+ * parallel streams spread the lines evenly over the threads without copying the text. The
+ * {@link #sizedTotals(CharSequence)} stream indexes the lines first, so that its size is exact
+ * and it splits into halves of exactly the same number of lines.
+ *
+ * @author Roger Delacruz
+ */
+public final class ScoreStreams {
+
+	/** Total given to a line that is not a valid game. **/
+	public static final int INVALID = -1;
+
+	/** Estimated average length of a line, used to estimate sizes before lines are counted. **/
+	private static final int AVERAGE_LINE = 20;
+
+	/** Smallest number of characters (or lines for an indexed source) worth splitting. **/
+	private static final int MIN_SPLIT = 1 << 10;
+
+	/* Constants should be place before this line */
+
+	/**
+	 * Scores the lines of a range of text, which starts at the start of a line and ends after a
+	 * line break or at the end of the text.
+	 */
+	private static final class LineSpliterator implements Spliterator.OfInt {
+		/** Text holding the lines. **/
+		private final CharSequence text;
+
+		/** Position of the next line. **/
+		private int from;
+
+		/** Position after the last line of the range. **/
+		private final int to;
+
+		/**
+		 * Initializes the spliterator.
+		 *
+		 * @param text - Text holding the lines.
+		 * @param from - Position of the first line.
+		 * @param to - Position after the last line.
+		 */
+		private LineSpliterator(CharSequence text, int from, int to) {
+			this.text = text;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			int end = lineEnd(text, from, to);
+			if (end < 0) {
+				from = to;
+				return false;
+			}
+			action.accept(score(text, from, end));
+			from = end + 1;
+			return true;
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			if (to - from < MIN_SPLIT)
+				return null;
+
+			// Cuts right after the first line break past the middle
+			int middle = from + (to - from) / 2;
+			for (int i = middle; i < to - 1; i++) {
+				if (text.charAt(i) == '\n') {
+					LineSpliterator prefix = new LineSpliterator(text, from, i + 1);
+					from = i + 1;
+					return prefix;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return (to - from) / AVERAGE_LINE + 1;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL;
+		}
+	}
+
+	/**
+	 * Scores a range of indexed lines, whose start positions are known.
+	 */
+	private static final class IndexedSpliterator implements Spliterator.OfInt {
+		/** Text holding the lines. **/
+		private final CharSequence text;
+
+		/** Start of each line, followed by the position after the last line. **/
+		private final int[] starts;
+
+		/** Index of the next line. **/
+		private int from;
+
+		/** Index after the last line of the range. **/
+		private final int to;
+
+		/**
+		 * Initializes the spliterator.
+		 *
+		 * @param text - Text holding the lines.
+		 * @param starts - Start of each line, followed by the position after the last line.
+		 * @param from - Index of the first line.
+		 * @param to - Index after the last line.
+		 */
+		private IndexedSpliterator(CharSequence text, int[] starts, int from, int to) {
+			this.text = text;
+			this.starts = starts;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			if (from >= to)
+				return false;
+			action.accept(score(text, starts[from], lineEnd(text, starts[from], starts[from + 1])));
+			from++;
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			for (; from < to; from++)
+				action.accept(score(text, starts[from], lineEnd(text, starts[from], starts[from + 1])));
+		}
+
+		@Override
+		public Spliterator.OfInt trySplit() {
+			if (to - from < MIN_SPLIT / AVERAGE_LINE)
+				return null;
+			int middle = from + (to - from) / 2;
+			IndexedSpliterator prefix = new IndexedSpliterator(text, starts, from, middle);
+			from = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return to - from;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL | SIZED | SUBSIZED;
+		}
+	}
+
+	/**
+	 * Prevents instantiation, the API is made of static methods.
+	 */
+	private ScoreStreams() {
+	}
+
+	/**
+	 * Finds the end of the line starting at a position.
+	 *
+	 * @param text - Text holding the line.
+	 * @param from - Start of the line.
+	 * @param to - Position after the last line of the range.
+	 * @return Position of the line break (or the end of the range), or -1 if there is no line
+	 * left (the range is empty, or only holds blanks after the last line break of the text).
+	 */
+	private static int lineEnd(CharSequence text, int from, int to) {
+		boolean content = false;
+		for (int i = from; i < to; i++) {
+			char c = text.charAt(i);
+			if (c == '\n')
+				return i;
+			if (c != '\r' && c != ' ' && c != '\t')
+				content = true;
+		}
+		return content ? to : -1;
+	}
+
+	/**
+	 * Scores the characters of a line with the packed game rules, skipping blanks.
+	 *
+	 * @param text - Text holding the line.
+	 * @param from - Start of the line.
+	 * @param to - End of the line.
+	 * @return Total score, or INVALID.
+	 */
+	private static int score(CharSequence text, int from, int to) {
+		int state = PackedGame.NEW_GAME;
+		try {
+			for (int i = from; i < to; i++) {
+				char c = text.charAt(i);
+				if (c != '\r' && c != ' ' && c != '\t')
+					state = PackedGame.symbol(state, c);
+			}
+		} catch (IllegalStateException | IllegalArgumentException e) {
+			return INVALID;
+		}
+		return PackedGame.total(state);
+	}
+
+	/**
+	 * Scores a single line.
+	 *
+	 * @param line - Sequence of roll symbols for a single game (blanks are skipped).
+	 * @return Total score, or INVALID.
+	 */
+	public static int score(CharSequence line) {
+		return score(line, 0, line.length());
+	}
+
+	/**
+	 * Scores every line of a text, such as a String or a CharBuffer. The size of the stream is
+	 * estimated from the length of the text, so the lines are only read once.
+	 *
+	 * @param text - Text holding one game per line.
+	 * @return Sequential ordered stream of totals, which can be made parallel.
+	 */
+	public static IntStream totals(CharSequence text) {
+		return StreamSupport.intStream(new LineSpliterator(text, 0, text.length()), false);
+	}
+
+	/**
+	 * Scores every line of a text, such as a String or a CharBuffer, after indexing its lines so
+	 * that the stream is sized exactly and splits evenly (at the cost of one int per line).
+	 *
+	 * @param text - Text holding one game per line.
+	 * @return Sequential ordered and sized stream of totals, which can be made parallel.
+	 */
+	public static IntStream sizedTotals(CharSequence text) {
+		int[] starts = new int[16];
+		int count = 0;
+		int from = 0;
+		int end;
+		while ((end = lineEnd(text, from, text.length())) >= 0) {
+			if (count + 2 > starts.length)
+				starts = Arrays.copyOf(starts, starts.length * 2);
+			starts[count++] = from;
+			from = end + 1;
+		}
+		starts[count] = Math.min(from, text.length());
+		return StreamSupport.intStream(new IndexedSpliterator(text, starts, 0, count), false);
+	}
+
+	/**
+	 * Scores every line of a stream of lines, keeping the characteristics of the stream.
+	 *
+	 * @param lines - Lines, one game each.
+	 * @return Stream of totals, parallel if the stream of lines is.
+	 */
+	public static IntStream totals(Stream<? extends CharSequence> lines) {
+		return lines.mapToInt(new ToIntFunction<CharSequence>() {
+			@Override
+			public int applyAsInt(CharSequence line) {
+				return score(line, 0, line.length());
+			}
+		});
+	}
+}
@@ -0,0 +1,379 @@
+package main;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Publishes the scoreboard of every lane (the cumulative score in each frame cell) to display
+ * clients as deltas, instead of the full state after every roll.
+ *
+ * Games are copied into a single shared snapshot, where every cell remembers the version it last
+ * changed in. Once per time window, updates made during the window are coalesced: each client is
+ * sent the cells changed since the last version it saw, as one compact {@link Update} of
+ * (lane, frame, value) records. Clients that saw the same version share the same update, so in
+ * the usual case the deltas are built once per window, whatever the number of clients.
+ *
+ * @author Roger Delacruz
+ */
+public class ScoreboardPublisher implements Closeable {
+
+	/** Value of a blank cell. **/
+	public static final int BLANK = -1;
+
+	/** Default length of the time window updates are coalesced over, in milliseconds. **/
+	public static final long DEFAULT_WINDOW = 100;
+
+	/** Number of frame cells of a lane. **/
+	private static final int CELLS = 10;
+
+	/* Constants should be place before this line */
+
+	/**
+	 * Cells changed between two versions of the scoreboard, as (lane, frame, value) records.
+	 * Updates are immutable, and shared between the clients they are sent to.
+	 */
+	public static final class Update {
+		/** Version the deltas start from. **/
+		private final long fromVersion;
+
+		/** Version the deltas bring the client to. **/
+		private final long toVersion;
+
+		/** Records, three ints each: lane, frame and value. **/
+		private final int[] records;
+
+		/**
+		 * Initializes the update.
+		 *
+		 * @param fromVersion - Version the deltas start from.
+		 * @param toVersion - Version the deltas bring the client to.
+		 * @param records - Records, three ints each: lane, frame and value.
+		 */
+		private Update(long fromVersion, long toVersion, int[] records) {
+			this.fromVersion = fromVersion;
+			this.toVersion = toVersion;
+			this.records = records;
+		}
+
+		/**
+		 * Gets the version the deltas start from (-1 for the full scoreboard).
+		 *
+		 * @return Version before the update.
+		 */
+		public long getFromVersion() {
+			return fromVersion;
+		}
+
+		/**
+		 * Gets the version the deltas bring the client to.
+		 *
+		 * @return Version after the update.
+		 */
+		public long getToVersion() {
+			return toVersion;
+		}
+
+		/**
+		 * Gets the number of changed cells.
+		 *
+		 * @return Number of records.
+		 */
+		public int size() {
+			return records.length / 3;
+		}
+
+		/**
+		 * Gets the lane id of a record.
+		 *
+		 * @param index - Index of the record.
+		 * @return Lane id.
+		 */
+		public int getLane(int index) {
+			return records[index * 3];
+		}
+
+		/**
+		 * Gets the frame number of a record.
+		 *
+		 * @param index - Index of the record.
+		 * @return Frame number (1 to 10).
+		 */
+		public int getFrame(int index) {
+			return records[index * 3 + 1];
+		}
+
+		/**
+		 * Gets the new value of the cell of a record.
+		 *
+		 * @param index - Index of the record.
+		 * @return Cumulative score of the frame, or BLANK.
+		 */
+		public int getValue(int index) {
+			return records[index * 3 + 2];
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder("Update[").append(fromVersion).append("->")
+					.append(toVersion).append(']');
+			for (int i = 0; i < size(); i++)
+				builder.append(' ').append(getLane(i)).append(':').append(getFrame(i)).append('=')
+						.append(getValue(i));
+			return builder.toString();
+		}
+	}
+
+	/**
+	 * A display client, which receives the updates of the scoreboard.
+	 */
+	public final class Client {
+		/** Receives the updates. **/
+		private final Consumer<Update> listener;
+
+		/** Last version sent to the client, or -1 before the first update. **/
+		private volatile long version = -1;
+
+		/**
+		 * Initializes the client.
+		 *
+		 * @param listener - Receives the updates.
+		 */
+		private Client(Consumer<Update> listener) {
+			this.listener = listener;
+		}
+
+		/**
+		 * Gets the last version of the scoreboard sent to the client.
+		 *
+		 * @return Version, -1 before the first update.
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * Stops sending updates to the client.
+		 */
+		public void unsubscribe() {
+			clients.remove(this);
+		}
+	}
+
+	/**
+	 * Frame cells of a lane in the shared snapshot.
+	 */
+	private static final class Lane {
+		/** Cumulative score of each frame, or BLANK. **/
+		private final int[] values = new int[CELLS];
+
+		/** Version each cell last changed in. **/
+		private final long[] versions = new long[CELLS];
+
+		/** Latest version any cell of the lane changed in. **/
+		private long version;
+
+		/**
+		 * Initializes the lane with blank cells.
+		 */
+		private Lane() {
+			Arrays.fill(values, BLANK);
+		}
+	}
+
+	/** Shared snapshot of every lane, by lane id. **/
+	private final Map<Integer, Lane> lanes;
+
+	/** Subscribed clients. **/
+	private final List<Client> clients;
+
+	/** Makes sure updates are sent to each client in version order. **/
+	private final Object publishing;
+
+	/** Runs the coalescing windows. **/
+	private final ScheduledExecutorService scheduler;
+
+	/** Latest version of the snapshot. **/
+	private long version;
+
+	/**
+	 * Initializes the publisher with the default time window.
+	 */
+	public ScoreboardPublisher() {
+		this(DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Initializes the publisher, and starts publishing once per time window.
+	 *
+	 * @param window - Length of the time window updates are coalesced over, in milliseconds.
+	 */
+	public ScoreboardPublisher(long window) {
+		if (window <= 0)
+			throw new IllegalArgumentException("Window must be positive: " + window);
+		lanes = new HashMap<Integer, Lane>();
+		clients = new CopyOnWriteArrayList<Client>();
+		publishing = new Object();
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "scoreboard-publisher");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				publish();
+			}
+		}, window, window, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Subscribes a display client. Its first update holds every cell that is not blank.
+	 *
+	 * @param listener - Receives the updates, on the publishing thread.
+	 * @return Client handle.
+	 */
+	public Client subscribe(Consumer<Update> listener) {
+		Client client = new Client(listener);
+		clients.add(client);
+		return client;
+	}
+
+	/**
+	 * Copies the scoreboard of a game into the snapshot. Only the cells whose value changed get a
+	 * new version, so a roll usually changes at most three cells.
+	 *
+	 * @param lane - Lane id the game is played on.
+	 * @param game - Game on the lane.
+	 */
+	public void update(int lane, BowlingScore game) {
+		update(lane, game.calculateFrameScores());
+	}
+
+	/**
+	 * Copies the scoreboard of a lane into the snapshot. Cells after the given scores are blank.
+	 *
+	 * @param lane - Lane id.
+	 * @param frameScores - Cumulative score of each frame played so far.
+	 */
+	public synchronized void update(int lane, int[] frameScores) {
+		Lane cells = lanes.get(lane);
+		if (cells == null) {
+			cells = new Lane();
+			lanes.put(lane, cells);
+		}
+		long next = version + 1;
+		boolean changed = false;
+		for (int i = 0; i < CELLS; i++) {
+			int value = i < frameScores.length ? frameScores[i] : BLANK;
+			if (cells.values[i] != value) {
+				cells.values[i] = value;
+				cells.versions[i] = next;
+				changed = true;
+			}
+		}
+		if (changed) {
+			cells.version = next;
+			version = next;
+		}
+	}
+
+	/**
+	 * Builds the deltas from a version to the current one.
+	 *
+	 * @param from - Version the client saw last, or -1 for every cell that is not blank.
+	 * @return Update, with no records if nothing changed.
+	 */
+	private Update buildUpdate(long from) {
+		boolean full = from < 0;
+		int[] records = new int[16 * 3];
+		int size = 0;
+		for (Map.Entry<Integer, Lane> entry : lanes.entrySet()) {
+			Lane cells = entry.getValue();
+			if (!full && cells.version <= from)
+				continue;
+			for (int i = 0; i < CELLS; i++) {
+				if (full ? cells.values[i] == BLANK : cells.versions[i] <= from)
+					continue;
+				if (size + 3 > records.length)
+					records = Arrays.copyOf(records, records.length * 2);
+				records[size++] = entry.getKey();
+				records[size++] = i + 1;
+				records[size++] = cells.values[i];
+			}
+		}
+		return new Update(from, version, Arrays.copyOf(records, size));
+	}
+
+	/**
+	 * Sends every client that is behind the deltas it has not seen yet. Called once per time
+	 * window, and can be called directly to publish right away.
+	 */
+	public void publish() {
+		synchronized (publishing) {
+			publishUpdates();
+		}
+	}
+
+	/**
+	 * Builds and sends the updates of the clients that are behind.
+	 */
+	private void publishUpdates() {
+		List<Client> behind = new ArrayList<Client>();
+		List<Update> updates = new ArrayList<Update>();
+		synchronized (this) {
+			// One update per distinct client version, usually just one for every client
+			Map<Long, Update> shared = new HashMap<Long, Update>();
+			for (Client client : clients) {
+				if (client.version == version)
+					continue;
+				Update update = shared.get(client.version);
+				if (update == null) {
+					update = buildUpdate(client.version);
+					shared.put(client.version, update);
+				}
+				behind.add(client);
+				updates.add(update);
+				client.version = version;
+			}
+		}
+
+		// Listeners are called outside the lock, so that scoring is never held up by them
+		for (int i = 0; i < behind.size(); i++) {
+			try {
+				behind.get(i).listener.accept(updates.get(i));
+			} catch (RuntimeException e) {
+				behind.get(i).unsubscribe();	// Broken client must not hold up the others
+			}
+		}
+	}
+
+	/**
+	 * Gets the latest version of the snapshot.
+	 *
+	 * @return Version, 0 before the first change.
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Stops publishing.
+	 */
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+	}
+}
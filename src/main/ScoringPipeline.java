@@ -0,0 +1,345 @@
+package main;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Scores a stream of lines on dedicated threads, handing them from stage to stage through a
+ * preallocated ring buffer of mutable slots, without locks or allocation per line.
+ *
+ * 1) The reader stage copies each input line into the next free slot.
+ * 2) Each scorer stage scores its share of the slots in place (slot sequence modulo the number
+ * of scorers), with the same rules as {@link BowlingScore}.
+ * 3) The writer stage drains the scored slots in sequence order, so the output lines are in
+ * the same order as the input lines.
+ *
+ * Every stage publishes the sequence of the last slot it is done with, and only waits on the
+ * sequence of the stage before it (the reader waits on the writer, so that it never overwrites a
+ * slot that has not been written yet).
+ *
+ * @author Roger Delacruz
+ */
+public class ScoringPipeline {
+
+	/** Result written for an invalid line. **/
+	public static final String ERROR = "error";
+
+	/** Default number of slots in the ring buffer. **/
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 14;
+
+	/** Longest line that can be scored (longer lines are invalid). **/
+	private static final int MAX_LINE = 64;
+
+	/** Size of the input and output buffers of the reader and writer. **/
+	private static final int IO_BUFFER_SIZE = 1 << 16;
+
+	/** Score of a slot whose line is invalid. **/
+	private static final int INVALID = -1;
+
+	/** Number of busy spins before a waiting stage starts yielding. **/
+	private static final int SPIN_TRIES = 1000;
+
+	/** Number of yields before a waiting stage starts parking. **/
+	private static final int YIELD_TRIES = 100;
+
+	/* Constants should be place before this line */
+
+	/**
+	 * Mutable slot of the ring buffer, holding one line and its score.
+	 */
+	private static final class Slot {
+		/** Characters of the line. **/
+		private final byte[] line = new byte[MAX_LINE];
+
+		/** Number of characters in the line (more than MAX_LINE if it was cut). **/
+		private int length;
+
+		/** Score of the line, or INVALID. **/
+		private int score;
+	}
+
+	/**
+	 * Sequence published by a stage, padded so that the sequences of different stages do not
+	 * share a cache line.
+	 */
+	@SuppressWarnings("unused")
+	private static final class Sequence {
+		private long p1, p2, p3, p4, p5, p6, p7;
+
+		/** Last sequence the stage is done with. **/
+		private volatile long value = -1;
+
+		private long p9, p10, p11, p12, p13, p14, p15;
+	}
+
+	/** Slots of the ring buffer. **/
+	private final Slot[] slots;
+
+	/** Mask turning a sequence into a slot index. **/
+	private final int mask;
+
+	/** Sequence published by the reader. **/
+	private final Sequence readSequence;
+
+	/** Sequence published by each scorer. **/
+	private final Sequence[] scoreSequences;
+
+	/** Sequence published by the writer. **/
+	private final Sequence writeSequence;
+
+	/** Number of lines read, set once the input is exhausted. **/
+	private volatile long endSequence;
+
+	/** First failure of any stage, which stops every stage. **/
+	private volatile Throwable failure;
+
+	/**
+	 * Initializes the pipeline with the default buffer size and one scorer per spare processor.
+	 */
+	public ScoringPipeline() {
+		this(DEFAULT_BUFFER_SIZE, Math.max(1, Runtime.getRuntime().availableProcessors() - 2));
+	}
+
+	/**
+	 * Initializes the pipeline and preallocates its slots.
+	 *
+	 * @param bufferSize - Number of slots in the ring buffer (must be a power of two).
+	 * @param scorers - Number of scorer stages.
+	 */
+	public ScoringPipeline(int bufferSize, int scorers) {
+		if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1)
+			throw new IllegalArgumentException("Buffer size must be a power of two: " + bufferSize);
+		if (scorers <= 0)
+			throw new IllegalArgumentException("There must be at least one scorer.");
+		slots = new Slot[bufferSize];
+		for (int i = 0; i < bufferSize; i++)
+			slots[i] = new Slot();
+		mask = bufferSize - 1;
+		readSequence = new Sequence();
+		writeSequence = new Sequence();
+		scoreSequences = new Sequence[scorers];
+		for (int i = 0; i < scorers; i++)
+			scoreSequences[i] = new Sequence();
+	}
+
+	/**
+	 * Scores every line of the input, and writes one result per line to the output (the total
+	 * score, or "error" for an invalid line). A pipeline can only be run once.
+	 *
+	 * @param in - Input of newline-delimited lines.
+	 * @param out - Output receiving the results.
+	 * @return Number of lines scored.
+	 * @throws IOException The input could not be read or the output could not be written.
+	 */
+	public long run(final InputStream in, final OutputStream out) throws IOException {
+		endSequence = Long.MAX_VALUE;
+		Thread[] threads = new Thread[scoreSequences.length + 1];
+		for (int i = 0; i < scoreSequences.length; i++) {
+			final int scorer = i;
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					score(scorer);
+				}
+			}, "pipeline-scorer-" + i);
+		}
+		threads[scoreSequences.length] = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					write(out);
+				} catch (IOException | RuntimeException e) {
+					fail(e);
+				}
+			}
+		}, "pipeline-writer");
+		for (Thread thread : threads)
+			thread.start();
+
+		// Reader stage runs on the calling thread
+		try {
+			read(in);
+		} catch (IOException | RuntimeException e) {
+			fail(e);
+		}
+
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail(e);
+				break;
+			}
+		}
+
+		Throwable cause = failure;
+		if (cause instanceof IOException)
+			throw (IOException) cause;
+		if (cause != null)
+			throw new IllegalStateException("Scoring pipeline failed.", cause);
+		return endSequence;
+	}
+
+	/**
+	 * Records the first failure, which makes every stage stop waiting.
+	 *
+	 * @param cause - Failure of a stage.
+	 */
+	private void fail(Throwable cause) {
+		if (failure == null)
+			failure = cause;
+	}
+
+	/**
+	 * Waits until the given sequence has reached the target, or the pipeline has failed.
+	 *
+	 * @param sequence - Sequence to watch.
+	 * @param target - Sequence value to wait for.
+	 * @return True once the target is reached, false if the pipeline failed or the input ended
+	 * before the target.
+	 */
+	private boolean waitFor(Sequence sequence, long target) {
+		int tries = 0;
+		while (sequence.value < target) {
+			if (failure != null || target >= endSequence)
+				return false;
+			if (tries < SPIN_TRIES)
+				Thread.onSpinWait();
+			else if (tries < SPIN_TRIES + YIELD_TRIES)
+				Thread.yield();
+			else
+				LockSupport.parkNanos(1000);
+			tries++;
+		}
+		return true;
+	}
+
+	/**
+	 * Reader stage. Copies each line of the input into the next slot, once the writer is done
+	 * with the line that was in it before.
+	 *
+	 * @param in - Input of newline-delimited lines.
+	 * @throws IOException The input could not be read.
+	 */
+	private void read(InputStream in) throws IOException {
+		byte[] buffer = new byte[IO_BUFFER_SIZE];
+		long sequence = 0;
+		Slot slot = null;
+		int count;
+		while ((count = in.read(buffer)) > 0) {
+			for (int i = 0; i < count; i++) {
+				byte c = buffer[i];
+				if (slot == null) {
+					// Waits until the writer is done with the slot
+					if (!waitFor(writeSequence, sequence - slots.length))
+						return;
+					slot = slots[(int) sequence & mask];
+					slot.length = 0;
+				}
+				if (c == '\n') {
+					readSequence.value = sequence++;
+					slot = null;
+				} else if (c != '\r' && c != ' ' && c != '\t') {
+					if (slot.length < MAX_LINE)
+						slot.line[slot.length] = c;
+					slot.length++;
+				}
+			}
+		}
+
+		// Last line may not end with a line break
+		if (slot != null && slot.length > 0)
+			readSequence.value = sequence++;
+		endSequence = sequence;
+	}
+
+	/**
+	 * Scorer stage. Scores its share of the slots in place.
+	 *
+	 * @param scorer - Index of the scorer.
+	 */
+	private void score(int scorer) {
+		Sequence published = scoreSequences[scorer];
+		for (long sequence = scorer; ; sequence += scoreSequences.length) {
+			if (!waitFor(readSequence, sequence))
+				return;
+			Slot slot = slots[(int) sequence & mask];
+			slot.score = score(slot.line, slot.length);
+			published.value = sequence;
+		}
+	}
+
+	/**
+	 * Scores the characters of a line with the packed game rules.
+	 *
+	 * @param line - Characters of the line.
+	 * @param length - Number of characters in the line.
+	 * @return Total score, or INVALID.
+	 */
+	private static int score(byte[] line, int length) {
+		if (length > MAX_LINE)
+			return INVALID;
+		int state = PackedGame.NEW_GAME;
+		try {
+			for (int i = 0; i < length; i++)
+				state = PackedGame.symbol(state, (char) line[i]);
+		} catch (IllegalStateException | IllegalArgumentException e) {
+			return INVALID;
+		}
+		return PackedGame.total(state);
+	}
+
+	/**
+	 * Writer stage. Writes the result of every slot in sequence order.
+	 *
+	 * @param out - Output receiving the results.
+	 * @throws IOException The output could not be written.
+	 */
+	private void write(OutputStream out) throws IOException {
+		byte[] buffer = new byte[IO_BUFFER_SIZE];
+		int position = 0;
+		for (long sequence = 0; ; sequence++) {
+			if (!waitFor(scoreSequences[(int) (sequence % scoreSequences.length)], sequence))
+				break;
+
+			// Room for the longest result and a line break
+			if (position + ERROR.length() + 1 > buffer.length) {
+				out.write(buffer, 0, position);
+				position = 0;
+			}
+			int score = slots[(int) sequence & mask].score;
+			if (score == INVALID) {
+				for (int i = 0; i < ERROR.length(); i++)
+					buffer[position++] = (byte) ERROR.charAt(i);
+			} else {
+				position = writeNumber(buffer, position, score);
+			}
+			buffer[position++] = '\n';
+			writeSequence.value = sequence;
+		}
+		out.write(buffer, 0, position);
+		out.flush();
+	}
+
+	/**
+	 * Writes the digits of a non-negative number.
+	 *
+	 * @param buffer - Output buffer.
+	 * @param position - Position to write at.
+	 * @param number - Number to write.
+	 * @return Position after the last digit.
+	 */
+	private static int writeNumber(byte[] buffer, int position, int number) {
+		int digits = 1;
+		for (int rest = number / 10; rest > 0; rest /= 10)
+			digits++;
+		for (int i = position + digits - 1; i >= position; i--) {
+			buffer[i] = (byte) ('0' + number % 10);
+			number /= 10;
+		}
+		return position + digits;
+	}
+}
@@ -0,0 +1,285 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP service that scores game lines submitted by other services. Lines use the same
+ * notation as the application input, and are scored with the regular game rules.
+ *
+ * The following endpoints accept POST requests with a plain text body:
+ *
+ * 1) /score scores a single line and responds with its total score.
+ * 2) /batch scores newline-delimited lines and responds with one total per line ("error" for an
+ * invalid line). Request and response bodies are streamed, so batches of any size can be sent.
+ * 3) /scorecard scores a single line and responds with the cumulative score of every frame,
+ * separated by spaces.
+ *
+ * @author Roger Delacruz
+ */
+public class ScoringServer {
+
+	/** Path of the single line scoring endpoint. **/
+	public static final String SCORE_PATH = "/score";
+
+	/** Path of the batch scoring endpoint. **/
+	public static final String BATCH_PATH = "/batch";
+
+	/** Path of the scorecard endpoint. **/
+	public static final String SCORECARD_PATH = "/scorecard";
+
+	/** Result written for an invalid line of a batch. **/
+	public static final String BATCH_ERROR = "error";
+
+	/** Number of pending connections the server socket queues up. **/
+	private static final int BACKLOG = 1024;
+
+	/** Size of the longest valid single line body: 21 rolls and a "\r\n" line break. **/
+	private static final int MAX_LINE_BODY = 23;
+
+	/* Constants should be place before this line */
+
+	/** Underlying JDK HTTP server. **/
+	private final HttpServer server;
+
+	/** Executor handling the exchanges. **/
+	private final ExecutorService executor;
+
+	/** Cache of the total scores of lines (may be null). **/
+	private final ScoreCache cache;
+
+	/**
+	 * Creates the server with one handler thread per available processor.
+	 *
+	 * @param address - Address to bind to (port 0 picks a free port).
+	 * @throws IOException The server socket could not be bound.
+	 */
+	public ScoringServer(InetSocketAddress address) throws IOException {
+		this(address, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates the server.
+	 *
+	 * @param address - Address to bind to (port 0 picks a free port).
+	 * @param threads - Number of threads handling the exchanges.
+	 * @throws IOException The server socket could not be bound.
+	 */
+	public ScoringServer(InetSocketAddress address, int threads) throws IOException {
+		this(address, threads, null);
+	}
+
+	/**
+	 * Creates the server, with total scores looked up in the given cache before being scored.
+	 *
+	 * @param address - Address to bind to (port 0 picks a free port).
+	 * @param threads - Number of threads handling the exchanges.
+	 * @param cache - Cache of the total scores of lines, or null to score every line.
+	 * @throws IOException The server socket could not be bound.
+	 */
+	public ScoringServer(InetSocketAddress address, int threads, ScoreCache cache)
+			throws IOException {
+		this.cache = cache;
+		server = HttpServer.create(address, BACKLOG);
+		executor = Executors.newFixedThreadPool(threads);
+		server.setExecutor(executor);
+		server.createContext(SCORE_PATH, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				handleScore(exchange);
+			}
+		});
+		server.createContext(BATCH_PATH, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				handleBatch(exchange);
+			}
+		});
+		server.createContext(SCORECARD_PATH, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				handleScorecard(exchange);
+			}
+		});
+	}
+
+	/**
+	 * Starts accepting requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests, and waits up to the given delay for current exchanges to finish.
+	 *
+	 * @param delay - Maximum time to wait, in seconds.
+	 */
+	public void stop(int delay) {
+		server.stop(delay);
+		executor.shutdown();
+	}
+
+	/**
+	 * Gets the port the server is bound to.
+	 *
+	 * @return Bound port.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Parses a line into a game, checking it the same way as the application input.
+	 *
+	 * @param line - Line of roll symbols.
+	 * @return Game with every roll of the line processed.
+	 * @throws IllegalStateException The line is not a valid game.
+	 */
+	private static BowlingScore parseLine(String line) throws IllegalStateException {
+		String trimmed = line.trim();
+		if (!RunApplication.inputIsValid(trimmed))
+			throw new IllegalStateException("Invalid format: " + trimmed);
+		return BowlingScore.fromLine(trimmed);
+	}
+
+	/**
+	 * Gets the total score of a line, checking it the same way as the application input.
+	 *
+	 * @param line - Line of roll symbols.
+	 * @return Total score of the line.
+	 * @throws IllegalStateException The line is not a valid game.
+	 */
+	private int scoreLine(String line) throws IllegalStateException {
+		if (cache == null)
+			return parseLine(line).calculateTotalScore();
+		String trimmed = line.trim();
+		if (!RunApplication.inputIsValid(trimmed))
+			throw new IllegalStateException("Invalid format: " + trimmed);
+		return cache.score(trimmed);
+	}
+
+	/**
+	 * Reads the whole body of a single line request, reading no more than one byte past the
+	 * longest valid line.
+	 *
+	 * @param exchange - Current exchange.
+	 * @return Request body, or null if the method is not POST or the body is too long (in which
+	 * case the exchange is already answered).
+	 * @throws IOException The body could not be read.
+	 */
+	private static String readLineBody(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			respond(exchange, 405, "Only POST requests are accepted.");
+			return null;
+		}
+		byte[] body = exchange.getRequestBody().readNBytes(MAX_LINE_BODY + 1);
+		if (body.length > MAX_LINE_BODY) {
+			respond(exchange, 413, "A line cannot be longer than " + MAX_LINE_BODY + " bytes.");
+			return null;
+		}
+		return new String(body, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Sends a complete plain text response and closes the exchange.
+	 *
+	 * @param exchange - Current exchange.
+	 * @param status - HTTP status code.
+	 * @param text - Response text, to which a line break is appended.
+	 * @throws IOException The response could not be written.
+	 */
+	private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+		byte[] body = (text + "\n").getBytes(StandardCharsets.US_ASCII);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Handles the single line scoring endpoint.
+	 *
+	 * @param exchange - Current exchange.
+	 * @throws IOException The exchange could not be completed.
+	 */
+	private void handleScore(HttpExchange exchange) throws IOException {
+		String line = readLineBody(exchange);
+		if (line == null)
+			return;
+		try {
+			respond(exchange, 200, String.valueOf(scoreLine(line)));
+		} catch (IllegalStateException e) {
+			respond(exchange, 400, "Error: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Handles the scorecard endpoint.
+	 *
+	 * @param exchange - Current exchange.
+	 * @throws IOException The exchange could not be completed.
+	 */
+	private void handleScorecard(HttpExchange exchange) throws IOException {
+		String line = readLineBody(exchange);
+		if (line == null)
+			return;
+		try {
+			int[] scores = parseLine(line).calculateFrameScores();
+			StringBuilder card = new StringBuilder();
+			for (int i = 0; i < scores.length; i++) {
+				if (i > 0)
+					card.append(' ');
+				card.append(scores[i]);
+			}
+			respond(exchange, 200, card.toString());
+		} catch (IllegalStateException e) {
+			respond(exchange, 400, "Error: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Handles the batch scoring endpoint. Lines are scored as they are read, and each result is
+	 * written to a chunked response right away.
+	 *
+	 * @param exchange - Current exchange.
+	 * @throws IOException The exchange could not be completed.
+	 */
+	private void handleBatch(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			respond(exchange, 405, "Only POST requests are accepted.");
+			return;
+		}
+		exchange.getResponseHeaders().set("Content-Type", "text/plain");
+		exchange.sendResponseHeaders(200, 0);		// Chunked response
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+					exchange.getRequestBody(), StandardCharsets.US_ASCII));
+				Writer writer = new BufferedWriter(new OutputStreamWriter(
+					exchange.getResponseBody(), StandardCharsets.US_ASCII))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				try {
+					writer.write(String.valueOf(scoreLine(line)));
+				} catch (IllegalStateException e) {
+					writer.write(BATCH_ERROR);
+				}
+				writer.write('\n');
+			}
+		}
+	}
+}
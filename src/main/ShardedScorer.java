@@ -0,0 +1,566 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores a large file of game lines with several worker processes on the same host, so that each
+ * worker has its own heap and garbage collector instead of one process having a giant heap.
+ *
+ * 1) The coordinator splits the input into chunks of whole lines, and writes one descriptor per
+ * chunk (input range, first line and number of lines) to a queue file.
+ * 2) Each worker maps the queue file, claims pending chunks by compare-and-swap on their state,
+ * scores their lines with {@link BowlingScore} (through a {@link ScoreCache}), and writes one
+ * score per line straight into its slot of a shared results file.
+ * 3) When a worker exits, the chunks it still claimed go back to pending and a new worker is
+ * started, so a crashed worker costs a retry of its chunks. A chunk is given up on (and its lines
+ * reported as errors) after a few attempts.
+ *
+ * Once every chunk is done, the coordinator writes one result per line to the output (the total
+ * score, or "error" for an invalid line), in input order and with the same rules as
+ * {@link ScoringPipeline}.
+ *
+ * @author Roger Delacruz
+ */
+public class ShardedScorer {
+
+	/** Default size of the chunks the input is split into. **/
+	public static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+
+	/** Number of times a chunk is attempted before its lines are reported as errors. **/
+	public static final int MAX_ATTEMPTS = 3;
+
+	/** Name of the queue file in the work directory. **/
+	public static final String QUEUE_FILE = "queue";
+
+	/** Name of the results file in the work directory. **/
+	public static final String RESULTS_FILE = "results";
+
+	/** Identifies a queue file. **/
+	private static final int MAGIC = 0x424F574C;
+
+	/** Size of the queue file header: magic (4), chunk count (4), line count (8), padding. **/
+	private static final int HEADER_SIZE = 64;
+
+	/** Size of a chunk descriptor: start (8), end (8), first line (8), lines (4), state (4). **/
+	private static final int DESCRIPTOR_SIZE = 32;
+
+	/** Offset of the state within a chunk descriptor. **/
+	private static final int STATE_OFFSET = 28;
+
+	/** State of a chunk waiting for a worker (positive states are the id of the claiming worker). **/
+	private static final int PENDING = 0;
+
+	/** State of a scored chunk. **/
+	private static final int DONE = -1;
+
+	/** State of a chunk given up on. **/
+	private static final int FAILED = -2;
+
+	/** Score written for an invalid line. **/
+	private static final int INVALID = -1;
+
+	/** Size of a score in the results file. **/
+	private static final int SCORE_SIZE = 4;
+
+	/** Largest region of a file mapped at once. **/
+	private static final int MAX_REGION = 1 << 30;
+
+	/** Gives atomic access to ints of the mapped queue file. **/
+	private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class,
+			ByteOrder.nativeOrder());
+
+	/* Constants should be place before this line */
+
+	/**
+	 * View of the queue and results files from a worker process, which claims, scores and
+	 * completes chunks one at a time.
+	 */
+	public static final class Worker implements AutoCloseable {
+		/** Id of the worker, stored in the state of the chunks it claims. **/
+		private final int id;
+
+		/** Mapped queue file. **/
+		private final MappedByteBuffer queue;
+
+		/** Channel of the input file. **/
+		private final FileChannel input;
+
+		/** Channel of the results file. **/
+		private final FileChannel results;
+
+		/** Number of chunks in the queue. **/
+		private final int chunks;
+
+		/** Scores repeated lines once per worker. **/
+		private final ScoreCache cache;
+
+		/** Characters of the line being read. **/
+		private final StringBuilder line;
+
+		/**
+		 * Opens the files of a work directory.
+		 *
+		 * @param workDir - Work directory holding the queue and results files.
+		 * @param inputFile - Input file of game lines.
+		 * @param id - Id of the worker (positive and unique for the run).
+		 * @throws IOException The files could not be opened or mapped.
+		 */
+		public Worker(Path workDir, Path inputFile, int id) throws IOException {
+			if (id <= 0)
+				throw new IllegalArgumentException("Worker id must be positive: " + id);
+			this.id = id;
+			try (FileChannel channel = FileChannel.open(workDir.resolve(QUEUE_FILE),
+					StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				queue = channel.map(MapMode.READ_WRITE, 0, channel.size());
+			}
+			queue.order(ByteOrder.nativeOrder());
+			if (queue.getInt(0) != MAGIC)
+				throw new IOException("Not a queue file: " + workDir.resolve(QUEUE_FILE));
+			chunks = queue.getInt(4);
+			input = FileChannel.open(inputFile, StandardOpenOption.READ);
+			results = FileChannel.open(workDir.resolve(RESULTS_FILE), StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			cache = new ScoreCache();
+			line = new StringBuilder();
+		}
+
+		/**
+		 * Claims the first pending chunk.
+		 *
+		 * @return Index of the claimed chunk, or -1 if no chunk is pending.
+		 */
+		public int claim() {
+			for (int i = 0; i < chunks; i++) {
+				int offset = HEADER_SIZE + i * DESCRIPTOR_SIZE + STATE_OFFSET;
+				if ((int) INTS.getVolatile(queue, offset) == PENDING
+						&& INTS.compareAndSet(queue, offset, PENDING, id))
+					return i;
+			}
+			return -1;
+		}
+
+		/**
+		 * Scores every line of a claimed chunk into its slots of the results file.
+		 *
+		 * @param chunk - Index of the chunk.
+		 * @throws IOException The input or results file could not be mapped.
+		 */
+		public void score(int chunk) throws IOException {
+			int descriptor = HEADER_SIZE + chunk * DESCRIPTOR_SIZE;
+			long start = queue.getLong(descriptor);
+			long end = queue.getLong(descriptor + 8);
+			long firstLine = queue.getLong(descriptor + 16);
+			int lines = queue.getInt(descriptor + 24);
+			MappedByteBuffer in = input.map(MapMode.READ_ONLY, start, end - start);
+			MappedByteBuffer out = results.map(MapMode.READ_WRITE, firstLine * SCORE_SIZE,
+					(long) lines * SCORE_SIZE);
+
+			line.setLength(0);
+			boolean content = false;
+			while (in.hasRemaining()) {
+				byte c = in.get();
+				if (c == '\n') {
+					out.putInt(scoreLine());
+					content = false;
+				} else if (c != '\r' && c != ' ' && c != '\t') {
+					line.append((char) c);
+					content = true;
+				}
+			}
+
+			// Last line of the input may not end with a line break
+			if (content)
+				out.putInt(scoreLine());
+		}
+
+		/**
+		 * Scores the line read so far and clears it.
+		 *
+		 * @return Total score, or INVALID.
+		 */
+		private int scoreLine() {
+			try {
+				return cache.score(line);
+			} catch (IllegalStateException | IllegalArgumentException e) {
+				return INVALID;
+			} finally {
+				line.setLength(0);
+			}
+		}
+
+		/**
+		 * Marks a claimed chunk as done, once its scores are written.
+		 *
+		 * @param chunk - Index of the chunk.
+		 */
+		public void complete(int chunk) {
+			INTS.compareAndSet(queue, HEADER_SIZE + chunk * DESCRIPTOR_SIZE + STATE_OFFSET, id, DONE);
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+			results.close();
+		}
+	}
+
+	/** Input file of game lines. **/
+	private final Path inputFile;
+
+	/** Work directory holding the queue and results files. **/
+	private final Path workDir;
+
+	/** Number of worker processes running at once. **/
+	private final int workers;
+
+	/** Size of the chunks the input is split into. **/
+	private final int chunkSize;
+
+	/** Number of chunks handed back to the queue after their worker exited. **/
+	private int retries;
+
+	/** Number of chunks given up on. **/
+	private int failedChunks;
+
+	/**
+	 * Initializes the coordinator with the default chunk size.
+	 *
+	 * @param inputFile - Input file of game lines.
+	 * @param workDir - Work directory for the queue and results files, which is created if needed.
+	 * @param workers - Number of worker processes running at once.
+	 */
+	public ShardedScorer(Path inputFile, Path workDir, int workers) {
+		this(inputFile, workDir, workers, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Initializes the coordinator.
+	 *
+	 * @param inputFile - Input file of game lines.
+	 * @param workDir - Work directory for the queue and results files, which is created if needed.
+	 * @param workers - Number of worker processes running at once.
+	 * @param chunkSize - Size of the chunks the input is split into, in bytes.
+	 */
+	public ShardedScorer(Path inputFile, Path workDir, int workers, int chunkSize) {
+		if (workers <= 0)
+			throw new IllegalArgumentException("There must be at least one worker.");
+		if (chunkSize <= 0)
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		this.inputFile = inputFile;
+		this.workDir = workDir;
+		this.workers = workers;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Scores every line of the input with the worker processes, and writes one result per line
+	 * to the output.
+	 *
+	 * @param out - Output receiving the results.
+	 * @return Number of lines scored.
+	 * @throws IOException The files could not be read or written, or a worker could not be started.
+	 * @throws InterruptedException The thread was interrupted while waiting for the workers.
+	 */
+	public long run(OutputStream out) throws IOException, InterruptedException {
+		retries = 0;
+		failedChunks = 0;
+		Files.createDirectories(workDir);
+		List<long[]> descriptors = split();
+		long lineCount = 0;
+		for (long[] descriptor : descriptors)
+			lineCount += descriptor[3];
+
+		// Results are preallocated, so that workers only map their own slots
+		try (FileChannel results = FileChannel.open(workDir.resolve(RESULTS_FILE),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+				FileChannel queueChannel = FileChannel.open(workDir.resolve(QUEUE_FILE),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			if (lineCount > 0)
+				results.write(ByteBuffer.wrap(new byte[1]), lineCount * SCORE_SIZE - 1);
+			MappedByteBuffer queue = queueChannel.map(MapMode.READ_WRITE, 0,
+					HEADER_SIZE + (long) descriptors.size() * DESCRIPTOR_SIZE);
+			queue.order(ByteOrder.nativeOrder());
+			for (int i = 0; i < descriptors.size(); i++) {
+				long[] descriptor = descriptors.get(i);
+				int offset = HEADER_SIZE + i * DESCRIPTOR_SIZE;
+				queue.putLong(offset, descriptor[0]);
+				queue.putLong(offset + 8, descriptor[1]);
+				queue.putLong(offset + 16, descriptor[2]);
+				queue.putInt(offset + 24, (int) descriptor[3]);
+				queue.putInt(offset + STATE_OFFSET, PENDING);
+			}
+			queue.putInt(4, descriptors.size());
+			queue.putLong(8, lineCount);
+			queue.putInt(0, MAGIC);
+			queue.force();
+
+			coordinate(queue, descriptors.size());
+			writeResults(queue, descriptors, results, out);
+		}
+		return lineCount;
+	}
+
+	/**
+	 * Splits the input into chunks of whole lines, and counts the lines of each chunk.
+	 *
+	 * @return Descriptor of each chunk: start, end, first line and number of lines.
+	 * @throws IOException The input could not be read.
+	 */
+	private List<long[]> split() throws IOException {
+		List<long[]> descriptors = new ArrayList<long[]>();
+		try (FileChannel channel = FileChannel.open(inputFile, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long start = 0;
+			long firstLine = 0;
+			long lines = 0;
+			boolean content = false;
+			for (long base = 0; base < size; base += MAX_REGION) {
+				MappedByteBuffer region = channel.map(MapMode.READ_ONLY, base,
+						Math.min(MAX_REGION, size - base));
+				for (int i = 0; i < region.limit(); i++) {
+					byte c = region.get(i);
+					if (c == '\n') {
+						lines++;
+						content = false;
+
+						// Chunks end right after a line break once they are big enough
+						long end = base + i + 1;
+						if (end - start >= chunkSize) {
+							descriptors.add(new long[] { start, end, firstLine, lines - firstLine });
+							start = end;
+							firstLine = lines;
+						}
+					} else if (c != '\r' && c != ' ' && c != '\t') {
+						content = true;
+					}
+				}
+			}
+			if (content)
+				lines++;	// Last line may not end with a line break
+			if (start < size)
+				descriptors.add(new long[] { start, size, firstLine, lines - firstLine });
+		}
+		return descriptors;
+	}
+
+	/**
+	 * Starts the worker processes, and restarts them as long as chunks are pending. Whenever a
+	 * worker exits, the chunks it still claimed are handed back to the queue.
+	 *
+	 * @param queue - Mapped queue file.
+	 * @param chunks - Number of chunks.
+	 * @throws IOException A worker could not be started.
+	 * @throws InterruptedException The thread was interrupted while waiting for the workers.
+	 */
+	private void coordinate(MappedByteBuffer queue, int chunks) throws IOException,
+			InterruptedException {
+		Map<Process, Integer> running = new HashMap<Process, Integer>();
+		int[] attempts = new int[chunks];
+		int nextId = 1;
+		int brokenWorkers = 0;
+		try {
+			while (true) {
+				for (Iterator<Map.Entry<Process, Integer>> it = running.entrySet().iterator();
+						it.hasNext();) {
+					Map.Entry<Process, Integer> entry = it.next();
+					if (entry.getKey().isAlive())
+						continue;
+					it.remove();
+
+					// Workers failing before claiming anything would be restarted forever
+					if (recover(queue, chunks, entry.getValue(), attempts) == 0
+							&& entry.getKey().exitValue() != 0 && ++brokenWorkers >= MAX_ATTEMPTS)
+						throw new IOException("Worker processes keep failing (exit code "
+								+ entry.getKey().exitValue() + ").");
+				}
+
+				int pending = 0;
+				int claimed = 0;
+				for (int i = 0; i < chunks; i++) {
+					int state = (int) INTS.getVolatile(queue, HEADER_SIZE + i * DESCRIPTOR_SIZE
+							+ STATE_OFFSET);
+					if (state == PENDING)
+						pending++;
+					else if (state > 0)
+						claimed++;
+				}
+				if (pending == 0 && claimed == 0)
+					return;
+
+				// Keeps enough workers running for the pending and claimed chunks
+				while (running.size() < Math.min(workers, pending + claimed)) {
+					int id = nextId++;
+					running.put(startWorker(id), id);
+				}
+				if (!running.isEmpty())
+					running.keySet().iterator().next().waitFor(10, TimeUnit.MILLISECONDS);
+			}
+		} finally {
+			for (Process process : running.keySet())
+				process.destroyForcibly();
+		}
+	}
+
+	/**
+	 * Hands the chunks still claimed by an exited worker back to the queue, or gives up on them
+	 * once they have been attempted too many times.
+	 *
+	 * @param queue - Mapped queue file.
+	 * @param chunks - Number of chunks.
+	 * @param id - Id of the exited worker.
+	 * @param attempts - Number of failed attempts of each chunk.
+	 * @return Number of chunks the worker still claimed.
+	 */
+	private int recover(MappedByteBuffer queue, int chunks, int id, int[] attempts) {
+		int reclaimed = 0;
+		for (int i = 0; i < chunks; i++) {
+			int offset = HEADER_SIZE + i * DESCRIPTOR_SIZE + STATE_OFFSET;
+			if ((int) INTS.getVolatile(queue, offset) != id)
+				continue;
+			reclaimed++;
+			if (++attempts[i] >= MAX_ATTEMPTS) {
+				INTS.setVolatile(queue, offset, FAILED);
+				failedChunks++;
+			} else {
+				INTS.setVolatile(queue, offset, PENDING);
+				retries++;
+			}
+		}
+		return reclaimed;
+	}
+
+	/**
+	 * Starts a worker process.
+	 *
+	 * @param id - Id of the worker.
+	 * @return Worker process.
+	 * @throws IOException The process could not be started.
+	 */
+	private Process startWorker(int id) throws IOException {
+		return new ProcessBuilder(workerCommand(id)).redirectOutput(Redirect.DISCARD)
+				.redirectError(Redirect.INHERIT).start();
+	}
+
+	/**
+	 * Builds the command line of a worker process, which runs {@link #main(String[])} on the same
+	 * class path as the coordinator.
+	 *
+	 * @param id - Id of the worker.
+	 * @return Command line.
+	 */
+	protected List<String> workerCommand(int id) {
+		List<String> command = new ArrayList<String>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ShardedScorer.class.getName());
+		command.add(workDir.toString());
+		command.add(inputFile.toString());
+		command.add(String.valueOf(id));
+		return command;
+	}
+
+	/**
+	 * Writes the result of every line from the results file, in input order.
+	 *
+	 * @param queue - Mapped queue file.
+	 * @param descriptors - Descriptor of each chunk.
+	 * @param results - Channel of the results file.
+	 * @param out - Output receiving the results.
+	 * @throws IOException The results could not be read or the output could not be written.
+	 */
+	private void writeResults(MappedByteBuffer queue, List<long[]> descriptors,
+			FileChannel results, OutputStream out) throws IOException {
+		OutputStream buffered = new BufferedOutputStream(out, 1 << 16);
+		byte[] error = (ScoringPipeline.ERROR + "\n").getBytes(StandardCharsets.US_ASCII);
+		byte[] digits = new byte[12];
+		for (int i = 0; i < descriptors.size(); i++) {
+			long[] descriptor = descriptors.get(i);
+			if (descriptor[3] == 0)
+				continue;
+			boolean failed = (int) INTS.getVolatile(queue, HEADER_SIZE + i * DESCRIPTOR_SIZE
+					+ STATE_OFFSET) == FAILED;
+			MappedByteBuffer scores = results.map(MapMode.READ_ONLY, descriptor[2] * SCORE_SIZE,
+					descriptor[3] * SCORE_SIZE);
+			for (int line = 0; line < descriptor[3]; line++) {
+				int score = failed ? INVALID : scores.getInt();
+				if (score == INVALID) {
+					buffered.write(error);
+					continue;
+				}
+				int position = digits.length;
+				digits[--position] = '\n';
+				do {
+					digits[--position] = (byte) ('0' + score % 10);
+					score /= 10;
+				} while (score > 0);
+				buffered.write(digits, position, digits.length - position);
+			}
+		}
+		buffered.flush();
+	}
+
+	/**
+	 * Gets the number of chunks handed back to the queue after their worker exited, during the
+	 * last run.
+	 *
+	 * @return Number of retried chunks.
+	 */
+	public int getRetries() {
+		return retries;
+	}
+
+	/**
+	 * Gets the number of chunks given up on after too many attempts, during the last run.
+	 *
+	 * @return Number of failed chunks.
+	 */
+	public int getFailedChunks() {
+		return failedChunks;
+	}
+
+	/**
+	 * Entry point of a worker process. Claims and scores chunks until none is pending.
+	 *
+	 * @param args - Work directory, input file and worker id.
+	 * @throws IOException The files could not be read or written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3) {
+			System.err.println("Usage: " + ShardedScorer.class.getName()
+					+ " <workdir> <input> <worker id>");
+			System.exit(2);
+		}
+		try (Worker worker = new Worker(Paths.get(args[0]), Paths.get(args[1]),
+				Integer.parseInt(args[2]))) {
+			int chunk;
+			while ((chunk = worker.claim()) >= 0) {
+				worker.score(chunk);
+				worker.complete(chunk);
+			}
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package main;
+
+import java.util.function.Consumer;
+
+/**
+ * Wraps the game being played on a lane, and turns every roll applied to it into the score
+ * events it causes, so that consumers are told about changes instead of polling the game.
+ *
+ * @author Roger Delacruz
+ */
+public class TrackedGame {
+
+	/** Lane id of the game. **/
+	private final int lane;
+
+	/** Game currently being played on the lane. **/
+	private BowlingScore game;
+
+	/** Number of frames already reported as closed. **/
+	private int closedFrames;
+
+	/** Number of frames already reported as resolved. **/
+	private int resolvedFrames;
+
+	/**
+	 * Initializes the tracked game with a new game.
+	 *
+	 * @param lane - Lane id of the game.
+	 */
+	public TrackedGame(int lane) {
+		this.lane = lane;
+		game = new BowlingScore();
+	}
+
+	/**
+	 * Applies a roll to the game, starting a new game first if the current one is over, then
+	 * sends the resulting score events to the given sink in frame order.
+	 *
+	 * @param symbol - Roll symbol.
+	 * @param sink - Receives the score events caused by the roll.
+	 * @throws IllegalStateException The roll cannot be applied to the current frame.
+	 * @throws IllegalArgumentException The symbol is not a valid roll symbol.
+	 */
+	public void roll(char symbol, Consumer<ScoreEvent> sink) throws IllegalStateException,
+			IllegalArgumentException {
+		if (game.isGameOver()) {
+			game = new BowlingScore();
+			closedFrames = 0;
+			resolvedFrames = 0;
+		}
+		game.processRoll(symbol);
+
+		int closed = game.getClosedFrames();
+		int resolved = game.getResolvedFrames();
+		if (closed == closedFrames && resolved == resolvedFrames)
+			return;		// Roll was the first of an open frame
+
+		int[] scores = game.calculateFrameScores();
+
+		// Bonuses resolved for frames closed by earlier rolls
+		for (int i = resolvedFrames; i < resolved && i < closedFrames; i++)
+			sink.accept(new ScoreEvent(ScoreEvent.Type.BONUS_RESOLVED, lane, i + 1, scores[i]));
+
+		// Frames closed by this roll
+		for (int i = closedFrames; i < closed; i++)
+			sink.accept(new ScoreEvent(ScoreEvent.Type.FRAME_CLOSED, lane, i + 1, scores[i]));
+
+		if (game.isGameOver())
+			sink.accept(new ScoreEvent(ScoreEvent.Type.GAME_FINISHED, lane, closed,
+					scores[closed - 1]));
+
+		closedFrames = closed;
+		resolvedFrames = resolved;
+	}
+
+	/**
+	 * Gets the lane id of the game.
+	 *
+	 * @return Lane id.
+	 */
+	public int getLane() {
+		return lane;
+	}
+
+	/**
+	 * Gets the game currently being played (or last finished) on the lane.
+	 *
+	 * @return Current game.
+	 */
+	public BowlingScore getGame() {
+		return game;
+	}
+}
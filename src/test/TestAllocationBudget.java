@@ -0,0 +1,203 @@
+package test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import main.BowlingRules;
+import main.BowlingScore;
+import main.OffHeapGameStore;
+import main.PackedGame;
+import main.RollTelemetry;
+import main.RulesScorer;
+
+/**
+ * Fails when a scoring path allocates more than its budget. Allocations are measured with the
+ * per-thread allocation counter of the JVM, after a warm-up so that the JIT has settled.
+ */
+public class TestAllocationBudget {
+
+	/** Number of calls measured for each path. **/
+	private static final int CALLS = 100000;
+
+	/** Number of calls made before measuring. **/
+	private static final int WARM_UP = 200000;
+
+	/** Allowed allocation per roll applied to a BowlingScore. **/
+	private static final long BYTES_PER_ROLL = 160;
+
+	/** Allowed heap footprint of a complete BowlingScore game. **/
+	private static final long BYTES_PER_GAME = 2048;
+
+	/** Allowed heap footprint per game slot of an off-heap store. **/
+	private static final double BYTES_PER_STORED_GAME = 0.01;
+
+	private static final String LINE = "X7/9-X-88/-6XXX81";
+
+	private com.sun.management.ThreadMXBean threads;
+
+	/** Keeps results alive, so that measured calls cannot be optimized away. **/
+	private long sink;
+
+	@Before
+	public void setUp() {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	/**
+	 * Gets the number of bytes allocated by the current thread so far.
+	 */
+	private long allocated() {
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Measures the bytes allocated per call of a scoring path.
+	 */
+	private double bytesPerCall(Runnable path) {
+		for (int i = 0; i < WARM_UP; i++)
+			path.run();
+		long before = allocated();
+		for (int i = 0; i < CALLS; i++)
+			path.run();
+		return (double) (allocated() - before) / CALLS;
+	}
+
+	private static BowlingScore playLine(String line) {
+		BowlingScore game = new BowlingScore();
+		for (int i = 0; i < line.length(); i++)
+			game.processRoll(line.charAt(i));
+		return game;
+	}
+
+	@Test
+	public void testCalculateTotalScoreAllocatesNothing() {
+		final BowlingScore game = playLine(LINE);
+		double bytes = bytesPerCall(new Runnable() {
+			@Override
+			public void run() {
+				sink += game.calculateTotalScore();
+			}
+		});
+		assertTrue("calculateTotalScore() allocated " + bytes + " bytes per call", bytes < 1);
+	}
+
+	@Test
+	public void testPossibleScoresAllocateNothing() {
+		final BowlingScore game = playLine("X7/9-X-8");
+		double bytes = bytesPerCall(new Runnable() {
+			@Override
+			public void run() {
+				sink += game.maxPossibleScore() + game.minPossibleScore();
+			}
+		});
+		assertTrue("Score projections allocated " + bytes + " bytes per call", bytes < 1);
+	}
+
+	@Test
+	public void testPackedGameAllocatesNothing() {
+		double bytes = bytesPerCall(new Runnable() {
+			@Override
+			public void run() {
+				sink += PackedGame.scoreLine(LINE);
+			}
+		});
+		assertTrue("PackedGame.scoreLine() allocated " + bytes + " bytes per line", bytes < 1);
+	}
+
+	@Test
+	public void testRulesScorerAllocatesNothing() {
+		final RulesScorer scorer = new RulesScorer(BowlingRules.TEN_PIN);
+		final int[] rolls = { 10, 7, 3, 9, 0, 10, 0, 8, 8, 2, 0, 6, 10, 10, 10, 8, 1 };
+		double bytes = bytesPerCall(new Runnable() {
+			@Override
+			public void run() {
+				sink += scorer.score(rolls, 0, rolls.length);
+			}
+		});
+		assertTrue("RulesScorer.score() allocated " + bytes + " bytes per game", bytes < 1);
+	}
+
+	@Test
+	public void testOffHeapStoreAllocatesNothing() {
+		final OffHeapGameStore store = new OffHeapGameStore(1);
+		final int slot = store.allocate();
+		double bytes = bytesPerCall(new Runnable() {
+			@Override
+			public void run() {
+				store.reset(slot);
+				for (int i = 0; i < LINE.length(); i++)
+					store.roll(slot, LINE.charAt(i));
+				sink += store.getTotal(slot);
+			}
+		});
+		assertTrue("OffHeapGameStore allocated " + bytes + " bytes per game", bytes < 1);
+	}
+
+	@Test
+	public void testTelemetryDecoderAllocatesNothing() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RollTelemetry.Encoder encoder = new RollTelemetry.Encoder(out);
+		for (int i = 0; i < CALLS; i++)
+			encoder.write(i % 24, i, LINE.charAt(i % LINE.length()), i * 1500L);
+		encoder.flush();
+		final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+
+		// Warms the decoder up on the whole stream, then measures it
+		for (int pass = 0; pass < 2; pass++) {
+			in.reset();
+			RollTelemetry.Decoder decoder = new RollTelemetry.Decoder(in);
+			long before = allocated();
+			while (decoder.next())
+				sink += decoder.getCode() + decoder.getLane();
+			double bytes = (double) (allocated() - before) / CALLS;
+			if (pass == 1)
+				assertTrue("Telemetry decoder allocated " + bytes + " bytes per roll", bytes < 1);
+		}
+	}
+
+	@Test
+	public void testBowlingScorePerRollBudget() {
+		double bytes = bytesPerCall(new Runnable() {
+			@Override
+			public void run() {
+				sink += playLine(LINE).getNumberOfFrames();
+			}
+		}) / LINE.length();
+		assertTrue("BowlingScore allocated " + bytes + " bytes per roll", bytes <= BYTES_PER_ROLL);
+	}
+
+	@Test
+	public void testBowlingScoreFootprint() {
+		for (int i = 0; i < WARM_UP; i++)
+			sink += playLine(LINE).getNumberOfFrames();
+		
+		// Everything allocated to play a game is an upper bound of what the game retains
+		long before = allocated();
+		BowlingScore game = playLine(LINE);
+		long bytes = allocated() - before;
+		assertEquals(167, game.calculateTotalScore());
+		assertTrue("A live game takes up to " + bytes + " bytes", bytes <= BYTES_PER_GAME);
+	}
+
+	@Test
+	public void testOffHeapStoreFootprint() {
+		int capacity = 1 << 20;
+		long before = allocated();
+		OffHeapGameStore store = new OffHeapGameStore(capacity);
+		double bytes = (double) (allocated() - before) / capacity;
+		assertEquals(capacity, store.getCapacity());
+		assertTrue("Off-heap store takes " + bytes + " heap bytes per game",
+				bytes <= BYTES_PER_STORED_GAME);
+	}
+}
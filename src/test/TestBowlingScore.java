@@ -2,6 +2,8 @@ package test;
 
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import org.junit.Test;
 
 import main.BowlingScore;
@@ -411,4 +413,69 @@ public class TestBowlingScore {
 			// Success
 		}
 	}
+	
+	@Test
+	public void testPossibleScores() {
+		BowlingScore game = new BowlingScore();
+		assertEquals(300, game.maxPossibleScore());
+		assertEquals(0, game.minPossibleScore());
+		
+		// Open first frame rules out a perfect game
+		game.processNumber(7);
+		assertEquals(290, game.maxPossibleScore());		// 7/ then eleven strikes
+		game.processNumber(2);
+		assertEquals(279, game.maxPossibleScore());
+		assertEquals(9, game.minPossibleScore());
+		
+		// Pending strike bonus counts towards both
+		game.processStrike();
+		assertEquals(279, game.maxPossibleScore());
+		assertEquals(19, game.minPossibleScore());
+		game.processNumber(4);
+		assertEquals(27, game.minPossibleScore());
+		assertEquals(259, game.maxPossibleScore());		// 4/ then strikes
+		
+		// Finished game can only reach its own total
+		game = new BowlingScore();
+		String line = "X7/9-X-88/-6XXX81";
+		for (int i = 0; i < line.length(); i++) {
+			game.processRoll(line.charAt(i));
+			assertTrue(game.maxPossibleScore() >= 167);
+			assertTrue(game.minPossibleScore() <= 167);
+		}
+		assertEquals(167, game.maxPossibleScore());
+		assertEquals(167, game.minPossibleScore());
+	}
+	
+	@Test
+	public void testMaxPossibleScoreIsReachable() {
+		String symbols = "X/-123456789";
+		Random random = new Random(11);
+		for (int n = 0; n < 2000; n++) {
+			// Random valid prefix
+			StringBuilder prefix = new StringBuilder();
+			BowlingScore game = new BowlingScore();
+			int rolls = random.nextInt(20);
+			while (prefix.length() < rolls && !game.isGameOver()) {
+				char symbol = symbols.charAt(random.nextInt(symbols.length()));
+				try {
+					game.processRoll(symbol);
+					prefix.append(symbol);
+				} catch (IllegalStateException e) {
+					// Try another symbol
+				}
+			}
+			int max = game.maxPossibleScore();
+			
+			// Best continuation reaches the maximum exactly
+			while (!game.isGameOver()) {
+				try {
+					game.processSpare();
+				} catch (IllegalStateException e) {
+					game.processStrike();
+				}
+			}
+			assertEquals(prefix.toString(), max, game.calculateTotalScore());
+		}
+	}
 }
@@ -0,0 +1,98 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.DirectoryIngester;
+import main.DirectoryIngester.Summary;
+import main.ScoringPipeline;
+
+public class TestDirectoryIngester {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final String[] LINES = { "XXXXXXXXXXXX", "9-9-9-9-9-9-9-9-9-9-", "X7/9-X-88/-6XXX81",
+			"5/5/5/5/5/5/5/5/5/5/5", "X34", "XX//", "abc", "", " 9 - \r" };
+
+	private static String readOutput(Path dir, String name) throws IOException {
+		return new String(Files.readAllBytes(dir.resolve(name + DirectoryIngester.OUTPUT_SUFFIX)),
+				StandardCharsets.US_ASCII);
+	}
+
+	private static String runPipeline(String input) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new ScoringPipeline(16, 1).run(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)), out);
+		return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	@Test
+	public void testValidationCases() throws IOException {
+		Path in = folder.newFolder("in").toPath();
+		Path out = folder.getRoot().toPath().resolve("out");
+		Files.write(in.resolve("lane1"), "XXXXXXXXXXXX\n9-9-9-9-9-9-9-9-9-9-\n".getBytes(StandardCharsets.US_ASCII));
+		Files.write(in.resolve("lane2"), "5/5/5/5/5/5/5/5/5/5/5\r\nX7/9-X-88/-6XXX81".getBytes(StandardCharsets.US_ASCII));
+		Files.write(in.resolve("lane3"), new byte[0]);
+
+		Summary summary = new DirectoryIngester(2, 1024).ingest(in, out);
+		assertEquals("300\n90\n", readOutput(out, "lane1"));
+		assertEquals("150\n167\n", readOutput(out, "lane2"));
+		assertEquals("", readOutput(out, "lane3"));
+		assertEquals(3, summary.getFiles());
+		assertEquals(4, summary.getLines());
+		assertEquals(0, summary.getInvalidLines());
+		assertTrue(summary.getFailedFiles().isEmpty());
+	}
+
+	@Test
+	public void testChunkedFilesSameAsPipeline() throws IOException {
+		Path in = folder.newFolder("in").toPath();
+		Path out = folder.newFolder("out").toPath();
+		Random random = new Random(7);
+		String[] inputs = new String[6];
+		long invalid = 0;
+		long lines = 0;
+		for (int f = 0; f < inputs.length; f++) {
+			StringBuilder input = new StringBuilder();
+			int count = random.nextInt(f * 2000 + 1);
+			for (int i = 0; i < count; i++) {
+				int line = random.nextInt(LINES.length);
+				input.append(LINES[line]).append('\n');
+				if (line == 5 || line == 6)
+					invalid++;
+			}
+			if (f % 2 == 1)
+				input.append(LINES[random.nextInt(5)]);		// No line break at the end
+			inputs[f] = input.toString();
+			lines += runPipeline(inputs[f]).split("\n", -1).length - 1;
+			Files.write(in.resolve("file" + f), inputs[f].getBytes(StandardCharsets.US_ASCII));
+		}
+
+		// Tiny chunks, so that many lines are cut by chunk boundaries
+		for (int chunkSize : new int[] { 1, 7, 64, 1 << 20 }) {
+			Summary summary = new DirectoryIngester(3, chunkSize).ingest(in, out);
+			for (int f = 0; f < inputs.length; f++)
+				assertEquals(runPipeline(inputs[f]), readOutput(out, "file" + f));
+			assertEquals(inputs.length, summary.getFiles());
+			assertEquals(lines, summary.getLines());
+			assertEquals(invalid, summary.getInvalidLines());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSameOutputDirectoryRejected() throws IOException {
+		Path in = folder.newFolder("in").toPath();
+		new DirectoryIngester().ingest(in, in);
+	}
+}
@@ -0,0 +1,121 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import main.CompressedBitmap;
+import main.GameArchiveIndex;
+
+public class TestGameArchiveIndex {
+
+	/**
+	 * Builds a bitmap and a reference bit set from the same random values.
+	 */
+	private static CompressedBitmap randomBitmap(Random random, BitSet reference, int density) {
+		CompressedBitmap bitmap = new CompressedBitmap();
+		for (int value = 0; value < 300000; value++) {
+			if (random.nextInt(100) < density) {
+				bitmap.add(value);
+				reference.set(value);
+			}
+		}
+		return bitmap;
+	}
+
+	private static void assertSame(BitSet expected, CompressedBitmap actual) {
+		assertEquals(expected.cardinality(), actual.cardinality());
+		assertArrayEquals(expected.stream().toArray(), actual.toArray());
+	}
+
+	@Test
+	public void testBitmapOperations() {
+		Random random = new Random(7);
+
+		// Sparse and dense bitmaps, so that both kinds of containers are combined
+		BitSet sparse = new BitSet();
+		BitSet dense = new BitSet();
+		CompressedBitmap first = randomBitmap(random, sparse, 2);
+		CompressedBitmap second = randomBitmap(random, dense, 60);
+		assertSame(sparse, first);
+		assertSame(dense, second);
+		assertTrue(first.contains(sparse.nextSetBit(1000)));
+		assertFalse(first.contains(sparse.nextClearBit(1000)));
+
+		BitSet and = (BitSet) sparse.clone();
+		and.and(dense);
+		assertSame(and, CompressedBitmap.and(first, second));
+		assertSame(and, CompressedBitmap.and(second, first));
+
+		BitSet or = (BitSet) sparse.clone();
+		or.or(dense);
+		assertSame(or, CompressedBitmap.or(first, second));
+
+		BitSet andNot = (BitSet) dense.clone();
+		andNot.andNot(sparse);
+		assertSame(andNot, CompressedBitmap.andNot(second, first));
+		andNot = (BitSet) sparse.clone();
+		andNot.andNot(dense);
+		assertSame(andNot, CompressedBitmap.andNot(first, second));
+	}
+
+	@Test
+	public void testOutOfOrderRejected() {
+		CompressedBitmap bitmap = new CompressedBitmap();
+		bitmap.add(5);
+		try {
+			bitmap.add(4);
+			fail("Values must be added in increasing order!");
+		} catch (IllegalArgumentException e) {
+			// Success
+		}
+	}
+
+	@Test
+	public void testPatternQueries() {
+		GameArchiveIndex index = new GameArchiveIndex();
+		assertEquals(0, index.add("XXXXXXXXXXXX"));
+		assertEquals(1, index.add("9-9-9-9-9-9-9-9-9-9-"));
+		assertEquals(2, index.add("5/5/5/5/5/5/5/5/5/5/5"));
+		assertEquals(3, index.add("X7/9-X-88/-6XXX81"));
+		assertEquals(4, index.add("XXXXXXXXX9-"));
+		try {
+			index.add("XX//");
+			fail("Invalid line should be rejected!");
+		} catch (IllegalStateException e) {
+			assertEquals(5, index.size());
+		}
+
+		// Turkey in frames 8-10
+		assertArrayEquals(new int[] { 0, 3 }, index.strikesInFrames(8, 10).toArray());
+
+		// Spare in the final frame
+		assertArrayEquals(new int[] { 2 }, index.spares(10).toArray());
+
+		// Over 250 with an open frame
+		assertArrayEquals(new int[] { 4 },
+				CompressedBitmap.and(index.scores(251, 300), index.anyOpen()).toArray());
+
+		// Clean games (no open frame)
+		assertArrayEquals(new int[] { 0, 2 },
+				CompressedBitmap.andNot(index.all(), index.anyOpen()).toArray());
+		assertArrayEquals(new int[] { 3 }, index.scores(167, 167).toArray());
+
+		// Results belong to the caller
+		index.spares(10).add(7);
+		index.strikesInFrames(10, 10).add(7);
+		index.all().add(7);
+		assertArrayEquals(new int[] { 2 }, index.spares(10).toArray());
+		assertArrayEquals(new int[] { 0, 3 }, index.strikesInFrames(10, 10).toArray());
+		assertEquals(5, index.all().cardinality());
+		try {
+			index.strikesInFrames(10, 8);
+			fail("A reversed frame range should be rejected!");
+		} catch (IllegalArgumentException e) {
+			// Success
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.LaneLogFollower;
+import main.ScoreEvent;
+
+public class TestLaneLogFollower {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final BlockingQueue<String> events = new LinkedBlockingQueue<String>();
+
+	private final Consumer<ScoreEvent> sink = new Consumer<ScoreEvent>() {
+		@Override
+		public void accept(ScoreEvent event) {
+			events.add(event.toString());
+		}
+	};
+
+	private static void append(Path file, String rolls) throws IOException {
+		Files.write(file, rolls.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND);
+	}
+
+	private String nextEvent() throws InterruptedException {
+		String event = events.poll(10, TimeUnit.SECONDS);
+		assertNotNull("No score event was emitted", event);
+		return event;
+	}
+
+	@Test
+	public void testExistingLogsReadOnStart() throws IOException {
+		Path dir = folder.getRoot().toPath();
+		append(dir.resolve("lane3.log"), "X7/9-X-88/-6XXX81\n");
+		append(dir.resolve("notes.txt"), "XXX");
+		try (LaneLogFollower follower = new LaneLogFollower(dir, sink)) {
+			assertEquals(167, follower.getGame(3).calculateTotalScore());
+			assertTrue(follower.getGame(3).isGameOver());
+			assertEquals(17, follower.getRolls());
+			assertNull(follower.getGame(1));
+		}
+	}
+
+	@Test
+	public void testAppendedRollsFollowed() throws IOException, InterruptedException {
+		Path dir = folder.getRoot().toPath();
+		Path lane = dir.resolve("lane4");
+		append(lane, "X");
+		try (LaneLogFollower follower = new LaneLogFollower(dir, sink)) {
+			assertEquals("FRAME_CLOSED[lane=4, frame=1, score=10]", nextEvent());
+			follower.start();
+
+			// Only the appended rolls are read
+			append(lane, "3");
+			append(lane, "4 ");
+			assertEquals("BONUS_RESOLVED[lane=4, frame=1, score=17]", nextEvent());
+			assertEquals("FRAME_CLOSED[lane=4, frame=2, score=24]", nextEvent());
+
+			// New lanes are picked up once their log is created
+			append(dir.resolve("lane9.log"), "9-");
+			assertEquals("FRAME_CLOSED[lane=9, frame=1, score=9]", nextEvent());
+
+			// Rejected rolls are counted and skipped
+			append(lane, "/5-");
+			assertEquals("FRAME_CLOSED[lane=4, frame=3, score=29]", nextEvent());
+			assertEquals(1, follower.getRejectedRolls());
+			assertEquals(8, follower.getRolls());
+		}
+	}
+
+	@Test
+	public void testRotatedLogStartsNewGame() throws IOException, InterruptedException {
+		Path dir = folder.getRoot().toPath();
+		Path lane = dir.resolve("lane1");
+		append(lane, "XXX");
+		try (LaneLogFollower follower = new LaneLogFollower(dir, sink)) {
+			Files.write(lane, "9".getBytes(StandardCharsets.US_ASCII));
+			assertTrue(follower.poll(10, TimeUnit.SECONDS) > 0);
+			assertEquals(9, follower.getGame(1).calculateTotalScore());
+		}
+	}
+
+	@Test
+	public void testLogRotatedByRenameStartsNewGame() throws IOException, InterruptedException {
+		Path dir = folder.getRoot().toPath();
+		Path lane = dir.resolve("lane7.log");
+		append(lane, "XXX");
+		try (LaneLogFollower follower = new LaneLogFollower(dir, sink)) {
+			assertEquals(60, follower.getGame(7).calculateTotalScore());
+			events.clear();
+
+			Files.move(lane, dir.resolve("lane7.log.1"));
+			append(lane, "54");
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (follower.getGame(7).calculateTotalScore() != 9 && System.nanoTime() < deadline)
+				follower.poll(1, TimeUnit.SECONDS);
+
+			// The renamed log is not replayed, the new one is read from its start
+			assertEquals(9, follower.getGame(7).calculateTotalScore());
+			assertEquals("FRAME_CLOSED[lane=7, frame=1, score=9]", nextEvent());
+			assertNull(events.poll());
+			assertEquals(5, follower.getRolls());
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import main.LeagueScorer;
+import main.LeagueScorer.Bowler;
+import main.LeagueScorer.Session;
+import main.LeagueScorer.Team;
+
+public class TestLeagueScorer {
+
+	private static final String NIGHT =
+			"# Week 1\n" +
+			"SESSION week-1\n" +
+			"TEAM Pin Pals\n" +
+			"BOWLER Homer 150 X7/9-X-88/-6XXX81 9-9-9-9-9-9-9-9-9-9- XXXXXXXXXXXX\n" +
+			"BOWLER Otto 230 5/5/5/5/5/5/5/5/5/5/5 XX// 9-9-9-9-9-9-9-9-9-9-\n" +
+			"\n" +
+			"TEAM Holy Rollers\n" +
+			"BOWLER Ned 200 XXXXXXXXXXXX XXXXXXXXXXXX XXXXXXXXXXXX\n";
+
+	private static List<Session> run(LeagueScorer scorer, String input) throws IOException {
+		final List<Session> sessions = new ArrayList<Session>();
+		scorer.run(new StringReader(input), new Consumer<Session>() {
+			@Override
+			public void accept(Session session) {
+				sessions.add(session);
+			}
+		});
+		return sessions;
+	}
+
+	@Test
+	public void testTotals() throws IOException {
+		Session session = run(new LeagueScorer(), NIGHT).get(0);
+		assertEquals("week-1", session.getName());
+		Team pals = session.getTeams().get(0);
+		Bowler homer = pals.getBowlers().get(0);
+		assertArrayEquals(new int[] { 167, 90, 300 }, homer.getGames());
+		assertEquals(557, homer.getSeries());
+		assertEquals(63, homer.getHandicap());		// 90% of (220 - 150)
+		assertEquals(746, homer.getHandicapSeries());
+
+		// Invalid game is reported and left out of the series, no handicap above the basis
+		Bowler otto = pals.getBowlers().get(1);
+		assertArrayEquals(new int[] { 150, LeagueScorer.INVALID, 90 }, otto.getGames());
+		assertEquals(240, otto.getSeries());
+		assertEquals(0, otto.getHandicap());
+		assertEquals(240, otto.getHandicapSeries());
+
+		assertEquals(797, pals.getSeries());
+		assertEquals(986, pals.getHandicapSeries());
+		Team rollers = session.getTeams().get(1);
+		assertEquals(900, rollers.getSeries());
+		assertEquals(954, rollers.getHandicapSeries());
+		assertEquals("BOWLER Otto games=150,error,90 series=240 handicap=0 total=240",
+				otto.toString());
+	}
+
+	@Test
+	public void testSessionsInOrder() throws IOException {
+		StringBuilder season = new StringBuilder();
+		for (int week = 1; week <= 100; week++)
+			season.append(NIGHT.replace("week-1", "week-" + week));
+		List<Session> sessions = run(new LeagueScorer(220, 90, 3), season.toString());
+		assertEquals(100, sessions.size());
+		for (int week = 1; week <= 100; week++) {
+			assertEquals("week-" + week, sessions.get(week - 1).getName());
+			assertEquals(986, sessions.get(week - 1).getTeams().get(0).getHandicapSeries());
+		}
+	}
+
+	@Test
+	public void testHandicapRule() {
+		LeagueScorer scorer = new LeagueScorer(200, 80, 1);
+		assertEquals(80, scorer.getHandicap(100));
+		assertEquals(0, scorer.getHandicap(210));
+		assertEquals(7, scorer.getHandicap(191));	// Rounded down
+	}
+
+	@Test
+	public void testInvalidFormat() throws IOException {
+		try {
+			run(new LeagueScorer(), "SESSION a\nBOWLER Homer 150 XXXXXXXXXXXX\n");
+			fail("Bowler without a team should be rejected!");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Line 2: BOWLER line before any TEAM line.", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import main.BowlingScore;
+import main.OffHeapGameStore;
+import main.PackedGame;
+
+public class TestPackedGame {
+
+	private static final String SYMBOLS = "X/-123456789";
+
+	@Test
+	public void testValidationCases() {
+		assertEquals(300, PackedGame.scoreLine("XXXXXXXXXXXX"));
+		assertEquals(90, PackedGame.scoreLine("9-9-9-9-9-9-9-9-9-9-"));
+		assertEquals(150, PackedGame.scoreLine("5/5/5/5/5/5/5/5/5/5/5"));
+		assertEquals(167, PackedGame.scoreLine("X7/9-X-88/-6XXX81"));
+	}
+
+	@Test
+	public void testFinishedGame() {
+		int state = PackedGame.NEW_GAME;
+		for (int i = 0; i < 20; i++) {
+			assertFalse(PackedGame.isFinished(state));
+			state = PackedGame.miss(state);
+		}
+		assertTrue(PackedGame.isFinished(state));
+		try {
+			PackedGame.miss(state);
+			fail("A shot cannot be processed after final frame is completed!");
+		} catch (IllegalStateException e) {
+			// Success
+		}
+	}
+
+	@Test
+	public void testSameAsBowlingScore() {
+		Random random = new Random(42);
+
+		// Random symbols, compared roll by roll including rejected rolls
+		for (int game = 0; game < 20000; game++) {
+			BowlingScore score = new BowlingScore();
+			int state = PackedGame.NEW_GAME;
+			while (!score.isGameOver()) {
+				char symbol = SYMBOLS.charAt(random.nextInt(SYMBOLS.length()));
+				boolean rejected = false;
+				try {
+					score.processRoll(symbol);
+				} catch (IllegalStateException e) {
+					rejected = true;
+				}
+				try {
+					state = PackedGame.symbol(state, symbol);
+					assertFalse("Accepted " + symbol, rejected);
+				} catch (IllegalStateException e) {
+					assertTrue("Rejected " + symbol, rejected);
+				}
+				assertEquals(score.calculateTotalScore(), PackedGame.total(state));
+				assertEquals(score.getClosedFrames() == 10, PackedGame.isFinished(state));
+			}
+		}
+	}
+
+	@Test
+	public void testOffHeapStore() {
+		OffHeapGameStore store = new OffHeapGameStore(3);
+		int first = store.allocate();
+		int second = store.allocate();
+		assertEquals(2, store.getAllocated());
+
+		String line = "X7/9-X-88/-6XXX81";
+		for (int i = 0; i < line.length(); i++)
+			store.roll(first, line.charAt(i));
+		store.roll(second, '7');
+		store.roll(second, '/');
+
+		assertEquals(167, store.getTotal(first));
+		assertTrue(store.isFinished(first));
+		assertEquals(line, store.getRolls(first));
+		assertEquals(10, store.getTotal(second));
+		assertEquals(1, store.getFrame(second));
+
+		// Rejected roll leaves the record unchanged
+		try {
+			store.roll(second, '/');
+			fail("A spare cannot be processed without at least one roll!");
+		} catch (IllegalStateException e) {
+			assertEquals("7/", store.getRolls(second));
+		}
+
+		// Released slots cannot be used or released again
+		store.release(first);
+		assertEquals(1, store.getAllocated());
+		try {
+			store.release(first);
+			fail("A slot cannot be released twice!");
+		} catch (IllegalStateException e) {
+			// Success
+		}
+		try {
+			store.roll(first, 'X');
+			fail("A released slot cannot be rolled!");
+		} catch (IllegalStateException e) {
+			// Success
+		}
+		try {
+			store.release(2);
+			fail("A slot that was never allocated cannot be released!");
+		} catch (IllegalStateException e) {
+			// Success
+		}
+
+		// Released slots are reused for new games
+		assertEquals(first, store.allocate());
+		assertEquals(0, store.getTotal(first));
+		assertEquals(0, store.getFrame(first));
+		assertFalse(store.isFinished(first));
+		assertEquals("", store.getRolls(first));
+		store.roll(first, '9');
+		assertEquals("9", store.getRolls(first));
+		assertEquals("7/", store.getRolls(second));
+		store.allocate();
+		try {
+			store.allocate();
+			fail("The store should be full!");
+		} catch (IllegalStateException e) {
+			// Success
+		}
+		assertEquals(3, store.getAllocated());
+	}
+}
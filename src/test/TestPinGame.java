@@ -0,0 +1,143 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import main.BowlingScore;
+import main.PackedGame;
+import main.PinGame;
+import main.PinGame.Leave;
+
+public class TestPinGame {
+
+	private static int leaveOf(Random random, int standing) {
+		int leave = standing;
+		for (int pin = 0; pin < 10; pin++)
+			if ((standing >>> pin & 1) != 0 && random.nextInt(3) != 0)
+				leave &= ~(1 << pin);
+		return leave;
+	}
+
+	@Test
+	public void testValidationCases() {
+		long game = PinGame.NEW_GAME;
+		for (int i = 0; i < 12; i++)
+			game = PinGame.roll(game, 0);
+		assertEquals(300, PinGame.total(game));
+		assertTrue(PinGame.isFinished(game));
+
+		game = PinGame.NEW_GAME;
+		for (int i = 0; i < 10; i++) {
+			game = PinGame.roll(game, PinGame.mask("6-7-8-9-10"));
+			assertEquals(PinGame.mask("6-7-8-9-10"), PinGame.standing(game));
+			game = PinGame.roll(game, 0);
+			assertEquals(PinGame.ALL_PINS, PinGame.standing(game));
+		}
+		game = PinGame.roll(game, PinGame.mask("1-2-3-4-5"));
+		assertEquals(150, PinGame.total(game));
+		assertTrue(PinGame.isFinished(game));
+	}
+
+	@Test
+	public void testPinsCannotStandUpAgain() {
+		long game = PinGame.roll(PinGame.NEW_GAME, PinGame.mask("7-10"));
+		try {
+			PinGame.roll(game, PinGame.mask("6-10"));
+			fail("Pin 6 was already knocked down!");
+		} catch (IllegalStateException e) {
+			// Success
+		}
+		try {
+			PinGame.roll(game, 1 << 10);
+			fail("Mask has no eleventh pin!");
+		} catch (IllegalArgumentException e) {
+			// Success
+		}
+	}
+
+	@Test
+	public void testSameAsBowlingScore() {
+		Random random = new Random(44);
+		for (int n = 0; n < 20000; n++) {
+			long game = PinGame.NEW_GAME;
+			StringBuilder line = new StringBuilder();
+			while (!PinGame.isFinished(game)) {
+				int before = PinGame.standing(game);
+				boolean fresh = !PackedGame.isMidRack(PinGame.state(game));
+				int after = leaveOf(random, before);
+				game = PinGame.roll(game, after);
+
+				int pins = Integer.bitCount(before) - Integer.bitCount(after);
+				line.append(after == 0 ? (fresh ? 'X' : '/') : pins == 0 ? '-' : (char) ('0' + pins));
+				assertEquals(PackedGame.pinsStanding(PinGame.state(game)),
+						Integer.bitCount(PinGame.standing(game)));
+			}
+			assertEquals(line.toString(), BowlingScore.fromLine(line).calculateTotalScore(),
+					PinGame.total(game));
+		}
+	}
+
+	@Test
+	public void testLeaves() {
+		assertEquals(Leave.SPLIT, PinGame.classify(PinGame.mask("7-10")));
+		assertEquals(Leave.SPLIT, PinGame.classify(PinGame.mask("4-6-7-10")));
+		assertEquals(Leave.SPLIT, PinGame.classify(PinGame.mask("2-7")));
+		assertEquals(Leave.SPLIT, PinGame.classify(PinGame.mask("3-10")));
+		assertEquals(Leave.SPLIT, PinGame.classify(PinGame.mask("5-6")));
+		assertEquals(Leave.SPLIT, PinGame.classify(PinGame.mask("4-9")));
+		assertEquals(Leave.CLUSTER, PinGame.classify(PinGame.mask("2-4-5-8")));
+		assertEquals(Leave.CLUSTER, PinGame.classify(PinGame.mask("2-8")));
+		assertEquals(Leave.CLUSTER, PinGame.classify(PinGame.mask("1-2-4-7")));
+		assertEquals(Leave.WASHOUT, PinGame.classify(PinGame.mask("1-2-10")));
+		assertEquals(Leave.SINGLE_PIN, PinGame.classify(PinGame.mask("10")));
+		assertEquals(Leave.CLEAR, PinGame.classify(0));
+		assertEquals(Leave.CLUSTER, PinGame.classify(PinGame.ALL_PINS));
+		assertTrue(PinGame.isSplit(PinGame.mask("7-10")));
+		assertFalse(PinGame.isSplit(PinGame.mask("1-2-10")));
+
+		assertEquals("Bedposts", PinGame.name(PinGame.mask("7-10")));
+		assertEquals("Big four", PinGame.name(PinGame.mask("4-6-7-10")));
+		assertEquals("Baby split", PinGame.name(PinGame.mask("3-10")));
+		assertNull(PinGame.name(PinGame.mask("10")));
+		assertEquals("4-6-7-10", PinGame.pins(PinGame.mask("10-7-6-4")));
+	}
+
+	@Test
+	public void testStore() {
+		Random random = new Random(45);
+		PinGame.Store store = new PinGame.Store();
+		int[] rolls = new int[21];
+		long[] leaves = new long[1024];
+		long[] conversions = new long[1024];
+		long[] expectedLeaves = new long[1024];
+		long[] expectedConversions = new long[1024];
+		int[] totals = new int[1000];
+		for (int n = 0; n < totals.length; n++) {
+			long game = PinGame.NEW_GAME;
+			int count = 0;
+			while (!PinGame.isFinished(game) && (n % 7 != 0 || count < 9)) {
+				boolean fresh = !PackedGame.isMidRack(PinGame.state(game));
+				rolls[count] = leaveOf(random, PinGame.standing(game));
+				game = PinGame.roll(game, rolls[count]);
+				if (!fresh) {
+					expectedLeaves[rolls[count - 1]]++;
+					if (rolls[count] == 0)
+						expectedConversions[rolls[count - 1]]++;
+				}
+				count++;
+			}
+			assertEquals(n, store.add(rolls, count));
+			totals[n] = PinGame.total(game);
+		}
+
+		assertEquals(totals.length, store.size());
+		for (int n = 0; n < totals.length; n++)
+			assertEquals(totals[n], store.score(n));
+		store.countLeaves(leaves, conversions);
+		assertArrayEquals(expectedLeaves, leaves);
+		assertArrayEquals(expectedConversions, conversions);
+	}
+}
@@ -0,0 +1,118 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.Reconciler;
+import main.Reconciler.Discrepancy;
+
+public class TestReconciler {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final String[] GAMES = { "XXXXXXXXXXXX", "9-9-9-9-9-9-9-9-9-9-", "X7/9-X-88/-6XXX81",
+			"5/5/5/5/5/5/5/5/5/5/5", "X34" };
+
+	private static final int[] TOTALS = { 300, 90, 167, 150, 24 };
+
+	private static List<String> reconcile(Reconciler reconciler, String logs, String scorecards)
+			throws IOException {
+		final List<String> reports = new ArrayList<String>();
+		reconciler.reconcile(new StringReader(logs), new StringReader(scorecards), new Consumer<Discrepancy>() {
+			@Override
+			public void accept(Discrepancy discrepancy) {
+				reports.add(discrepancy.toString());
+			}
+		});
+		return reports;
+	}
+
+	@Test
+	public void testMatchingGames() throws IOException {
+		Reconciler reconciler = new Reconciler(folder.getRoot().toPath());
+		String logs = "4 1 X7/9-X-88/-6XXX81\n4 2 XXXXXXXXXXXX\n";
+		String cards = "4 2 300\n4 1 20 39 48 66 74 84 90 120 148 167\n";
+		assertTrue(reconcile(reconciler, logs, cards).isEmpty());
+		assertEquals(0, reconciler.getDiscrepancies());
+		assertEquals(0, reconciler.getSpilledPartitions());
+	}
+
+	@Test
+	public void testFirstDivergentFrame() throws IOException {
+		Reconciler reconciler = new Reconciler(folder.getRoot().toPath());
+		String logs = "4 1 X7/9-X-88/-6XXX81\n4 2 XXXXXXXXXXXX\n";
+		String cards = "4 1 20 39 48 66 74 84 90 120 147 166\n4 2 290\n";
+		assertEquals(Arrays.asList(
+				"MISMATCH[lane=4, game=1, claimed=166, actual=167, frame=9]",
+				"MISMATCH[lane=4, game=2, claimed=290, actual=300, frame=0]"),
+				reconcile(reconciler, logs, cards));
+	}
+
+	@Test
+	public void testMissingAndInvalid() throws IOException {
+		Reconciler reconciler = new Reconciler(folder.getRoot().toPath());
+		String logs = "1 1 XXXXXXXXXXXX\n2 1 9/X/\n3 1 X34\n4 1 9-9-9-9-9-9-9-9-9-9-\n";
+		String cards = "\n1 2 150\n2 1 40\n3 1 24\n1 1 300\n";
+		List<String> reports = reconcile(reconciler, logs, cards);
+
+		// A log cut off mid-game does not settle its scorecard either way
+		assertEquals(Arrays.asList(
+				"MISSING_LOG[lane=1, game=2, claimed=150, actual=-1, frame=0]",
+				"INVALID_LOG[lane=2, game=1, claimed=40, actual=-1, frame=0]",
+				"INVALID_LOG[lane=3, game=1, claimed=24, actual=-1, frame=0]",
+				"MISSING_SCORECARD[lane=4, game=1, claimed=-1, actual=90, frame=0]"), reports);
+		assertEquals(4, reconciler.getDiscrepancies());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMalformedScorecard() throws IOException {
+		reconcile(new Reconciler(folder.getRoot().toPath()), "1 1 XXXXXXXXXXXX\n", "1 one 300\n");
+	}
+
+	@Test
+	public void testSpilledSameAsInMemory() throws IOException {
+		Random random = new Random(43);
+		StringBuilder logs = new StringBuilder();
+		List<String> cards = new ArrayList<String>();
+		for (int lane = 1; lane <= 40; lane++) {
+			for (int game = 1; game <= 50; game++) {
+				int pick = random.nextInt(GAMES.length);
+				if (random.nextInt(50) != 0)
+					logs.append(lane).append(' ').append(game).append(' ').append(GAMES[pick]).append('\n');
+				if (random.nextInt(50) != 0)
+					cards.add(lane + " " + game + " " + (TOTALS[pick] - (random.nextInt(20) == 0 ? 1 : 0)));
+			}
+		}
+		Collections.shuffle(cards, random);
+		StringBuilder scorecards = new StringBuilder();
+		for (String card : cards)
+			scorecards.append(card).append('\n');
+
+		Reconciler memory = new Reconciler(folder.getRoot().toPath());
+		List<String> expected = reconcile(memory, logs.toString(), scorecards.toString());
+		Reconciler spilling = new Reconciler(folder.getRoot().toPath(), 3);
+		List<String> actual = reconcile(spilling, logs.toString(), scorecards.toString());
+
+		assertFalse(expected.isEmpty());
+		assertTrue(spilling.getSpilledPartitions() > 32);
+		Collections.sort(expected);
+		Collections.sort(actual);
+		assertEquals(expected, actual);
+		assertEquals(0, Files.list(folder.getRoot().toPath()).count());
+	}
+}
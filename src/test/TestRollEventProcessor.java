@@ -0,0 +1,102 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import main.RollEvent;
+import main.RollEventProcessor;
+import main.ScoreEvent;
+
+public class TestRollEventProcessor {
+
+	/**
+	 * Subscriber that requests one event at a time and records them as text.
+	 */
+	private static class Recorder implements Flow.Subscriber<ScoreEvent> {
+		private final List<String> events = new ArrayList<String>();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private Flow.Subscription subscription;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(1);
+		}
+
+		@Override
+		public void onNext(ScoreEvent event) {
+			events.add(event.toString());
+			subscription.request(1);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			done.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			done.countDown();
+		}
+	}
+
+	/**
+	 * Publishes the given line of rolls on a lane through a processor, and records the events.
+	 */
+	private List<String> run(int lane, String line) throws InterruptedException {
+		RollEventProcessor processor = new RollEventProcessor();
+		Recorder recorder = new Recorder();
+		processor.subscribe(recorder);
+
+		try (SubmissionPublisher<RollEvent> rolls = new SubmissionPublisher<RollEvent>()) {
+			rolls.subscribe(processor);
+			for (int i = 0; i < line.length(); i++)
+				rolls.submit(new RollEvent(lane, line.charAt(i)));
+		}
+		assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+		return recorder.events;
+	}
+
+	@Test
+	public void testStrikeBonusResolved() throws InterruptedException {
+		List<String> events = run(4, "X34");
+		assertEquals(3, events.size());
+		assertEquals("FRAME_CLOSED[lane=4, frame=1, score=10]", events.get(0));
+		assertEquals("BONUS_RESOLVED[lane=4, frame=1, score=17]", events.get(1));
+		assertEquals("FRAME_CLOSED[lane=4, frame=2, score=24]", events.get(2));
+	}
+
+	@Test
+	public void testGameFinished() throws InterruptedException {
+		List<String> events = run(1, "X7/9-X-88/-6XXX81");
+		assertEquals("FRAME_CLOSED[lane=1, frame=10, score=167]", events.get(events.size() - 2));
+		assertEquals("GAME_FINISHED[lane=1, frame=10, score=167]", events.get(events.size() - 1));
+
+		// Every frame is closed once, and every spare or strike is resolved once
+		int closed = 0;
+		int resolved = 0;
+		for (String event : events) {
+			if (event.startsWith("FRAME_CLOSED"))
+				closed++;
+			else if (event.startsWith("BONUS_RESOLVED"))
+				resolved++;
+		}
+		assertEquals(10, closed);
+		assertEquals(6, resolved);
+	}
+
+	@Test
+	public void testRejectedRollIgnored() throws InterruptedException {
+		List<String> events = run(2, "/9-");
+		assertEquals(1, events.size());
+		assertEquals("FRAME_CLOSED[lane=2, frame=1, score=9]", events.get(0));
+	}
+}
@@ -0,0 +1,105 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import main.LiveLanes;
+import main.RollJournal;
+
+public class TestRollJournal {
+
+	private Path file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = Files.createTempFile("rolls", ".journal");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testAppendAndReplay() throws IOException, InterruptedException {
+		RollJournal journal = new RollJournal(file);
+		assertEquals(1, journal.append(3, 'X'));
+		assertEquals(2, journal.append(7, '5'));
+		assertEquals(3, journal.append(3, '/'));
+		journal.awaitDurable(3);
+		assertEquals(3, journal.getDurableSequence());
+
+		final List<String> records = new ArrayList<String>();
+		journal.replay(new RollJournal.RollVisitor() {
+			@Override
+			public void visit(int lane, long sequence, char symbol, long timestamp) {
+				records.add(lane + ":" + sequence + ":" + symbol);
+			}
+		});
+		journal.close();
+
+		assertEquals(3, records.size());
+		assertEquals("3:1:X", records.get(0));
+		assertEquals("7:2:5", records.get(1));
+		assertEquals("3:3:/", records.get(2));
+	}
+
+	@Test
+	public void testReopenAppendsAfterLastRecord() throws IOException {
+		RollJournal journal = new RollJournal(file);
+		journal.append(1, 'X');
+		journal.append(1, 'X');
+		journal.close();
+
+		// Reopening finds the end of the journal
+		journal = new RollJournal(file);
+		assertEquals(2, journal.getLastSequence());
+		assertEquals(3, journal.append(1, 'X'));
+		journal.close();
+	}
+
+	@Test
+	public void testRecoverLiveGames() throws IOException {
+		RollJournal journal = new RollJournal(file);
+		LiveLanes lanes = new LiveLanes(journal);
+
+		// Perfect game on lane 1, then a new game is started on the same lane
+		for (int i = 0; i < 12; i++)
+			lanes.roll(1, 'X');
+		lanes.roll(1, '7');
+
+		// Partial game on lane 2, with a rejected roll in the middle
+		lanes.roll(2, '5');
+		lanes.roll(2, '/');
+		try {
+			lanes.roll(2, '/');
+			fail("A spare cannot be processed without at least one roll!");
+		} catch (IllegalStateException e) {
+			// Success
+		}
+		lanes.roll(2, '3');
+		int laneTwoScore = lanes.getGame(2).calculateTotalScore();
+		journal.close();
+
+		// Simulates a restart by replaying the journal
+		journal = new RollJournal(file);
+		LiveLanes recovered = LiveLanes.recover(journal);
+		assertEquals(2, recovered.getNumberOfLanes());
+		assertEquals(7, recovered.getGame(1).calculateTotalScore());
+		assertEquals(laneTwoScore, recovered.getGame(2).calculateTotalScore());
+
+		// Recovered lanes keep journaling
+		recovered.roll(1, '2');
+		assertEquals(9, recovered.getGame(1).calculateTotalScore());
+		journal.close();
+	}
+}
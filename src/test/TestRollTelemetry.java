@@ -0,0 +1,117 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import main.BowlingScore;
+import main.RollTelemetry;
+
+public class TestRollTelemetry {
+
+	private static final String[] LINES = { "X7/9-X-88/-6XXX81", "9-9-9-9-9-9-9-9-9-9-", "XXXXXXXXXXXX",
+			"5/5/5/5/5/5/5/5/5/5/5" };
+
+	/**
+	 * Encodes the lines as if each was played on its own lane, the lanes taking turns.
+	 */
+	private static byte[] encodeLanes(String[] lines) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RollTelemetry.Encoder encoder = new RollTelemetry.Encoder(out);
+		long sequence = 1;
+		long time = 1700000000000L;
+		for (int i = 0; i < 21; i++) {
+			for (int lane = 0; lane < lines.length; lane++) {
+				if (i < lines[lane].length()) {
+					encoder.write(lane + 1, sequence++, lines[lane].charAt(i), time);
+					time += 2500;
+				}
+			}
+		}
+		encoder.flush();
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testDecodedIntoGames() throws IOException {
+		byte[] encoded = encodeLanes(LINES);
+		BowlingScore[] games = new BowlingScore[LINES.length + 1];
+		for (int i = 0; i < games.length; i++)
+			games[i] = new BowlingScore();
+
+		RollTelemetry.Decoder decoder = new RollTelemetry.Decoder(new ByteArrayInputStream(encoded));
+		long sequence = 0;
+		while (decoder.next()) {
+			assertEquals(++sequence, decoder.getSequence());
+			decoder.applyTo(games[decoder.getLane()]);
+		}
+		assertEquals(167, games[1].calculateTotalScore());
+		assertEquals(90, games[2].calculateTotalScore());
+		assertEquals(300, games[3].calculateTotalScore());
+		assertEquals(150, games[4].calculateTotalScore());
+		for (int lane = 1; lane < games.length; lane++)
+			assertTrue(games[lane].isGameOver());
+
+		// Far smaller than one text line per roll
+		assertTrue(encoded.length + " bytes", encoded.length < sequence * 5);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Random random = new Random(19);
+		int count = 100000;
+		int[] lanes = new int[count];
+		long[] sequences = new long[count];
+		char[] symbols = new char[count];
+		long[] times = new long[count];
+		String alphabet = "X/-123456789";
+		for (int i = 0; i < count; i++) {
+			lanes[i] = random.nextInt(4) == 0 ? random.nextInt(1 << 20) : (i > 0 ? lanes[i - 1] : 7);
+			sequences[i] = random.nextInt(8) == 0 ? random.nextLong() : (i > 0 ? sequences[i - 1] + 1 : 1);
+			symbols[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+			times[i] = random.nextInt(8) == 0 ? random.nextLong() : (i > 0 ? times[i - 1] + random.nextInt(3) : 0);
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RollTelemetry.Encoder encoder = new RollTelemetry.Encoder(out);
+		for (int i = 0; i < count; i++)
+			encoder.write(lanes[i], sequences[i], symbols[i], times[i]);
+		encoder.flush();
+
+		RollTelemetry.Decoder decoder = new RollTelemetry.Decoder(new ByteArrayInputStream(out.toByteArray()));
+		for (int i = 0; i < count; i++) {
+			assertTrue(decoder.next());
+			assertEquals(lanes[i], decoder.getLane());
+			assertEquals(sequences[i], decoder.getSequence());
+			assertEquals(symbols[i], decoder.getSymbol());
+			assertEquals(times[i], decoder.getTimestamp());
+		}
+		assertFalse(decoder.next());
+	}
+
+	@Test(expected = EOFException.class)
+	public void testTruncatedStream() throws IOException {
+		byte[] encoded = encodeLanes(LINES);
+		RollTelemetry.Decoder decoder = new RollTelemetry.Decoder(
+				new ByteArrayInputStream(Arrays.copyOf(encoded, 5)));	// Magic and a cut record
+		while (decoder.next())
+			;
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotTelemetry() throws IOException {
+		new RollTelemetry.Decoder(new ByteArrayInputStream("X7/9-X-88/-6XXX81".getBytes("US-ASCII"))).next();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSymbol() throws IOException {
+		new RollTelemetry.Encoder(new ByteArrayOutputStream()).write(1, 1, 'x', 0);
+	}
+}
@@ -0,0 +1,108 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import main.BowlingRules;
+import main.PackedGame;
+import main.RulesScorer;
+
+public class TestRulesScorer {
+
+	private static int scoreLine(RulesScorer scorer, String line) {
+		long game = scorer.newGame();
+		for (int i = 0; i < line.length(); i++)
+			game = scorer.symbol(game, line.charAt(i));
+		assertTrue(scorer.isFinished(game));
+		return RulesScorer.total(game);
+	}
+
+	@Test
+	public void testTenPinValidationCases() {
+		RulesScorer scorer = new RulesScorer(BowlingRules.TEN_PIN);
+		assertEquals(300, scoreLine(scorer, "XXXXXXXXXXXX"));
+		assertEquals(90, scoreLine(scorer, "9-9-9-9-9-9-9-9-9-9-"));
+		assertEquals(150, scoreLine(scorer, "5/5/5/5/5/5/5/5/5/5/5"));
+		assertEquals(167, scoreLine(scorer, "X7/9-X-88/-6XXX81"));
+	}
+
+	@Test
+	public void testTenPinSameAsPackedGame() {
+		RulesScorer scorer = new RulesScorer(BowlingRules.TEN_PIN);
+		Random random = new Random(5);
+		for (int n = 0; n < 20000; n++) {
+			long game = scorer.newGame();
+			int state = PackedGame.NEW_GAME;
+			while (!PackedGame.isFinished(state)) {
+				int pins = random.nextInt(PackedGame.pinsStanding(state) + 1);
+				state = PackedGame.roll(state, pins);
+				game = scorer.roll(game, pins);
+				assertEquals(PackedGame.total(state), RulesScorer.total(game));
+			}
+			assertTrue(scorer.isFinished(game));
+		}
+	}
+
+	@Test
+	public void testNoTap() {
+		RulesScorer scorer = new RulesScorer(BowlingRules.NINE_PIN_NO_TAP);
+
+		// Nine pins on every first ball is a perfect game
+		long game = scorer.newGame();
+		for (int i = 0; i < 12; i++)
+			game = scorer.roll(game, 9);
+		assertTrue(scorer.isFinished(game));
+		assertEquals(300, RulesScorer.total(game));
+
+		// But nine on the second ball is only a spare if it clears the rack
+		game = scorer.roll(scorer.newGame(), 0);
+		game = scorer.roll(game, 9);
+		assertEquals(9, RulesScorer.total(game));
+		assertEquals(1, scorer.frame(game));
+	}
+
+	@Test
+	public void testCandlepin() {
+		RulesScorer scorer = new RulesScorer(BowlingRules.CANDLEPIN);
+
+		// Three balls per frame, ten with the third ball earns no bonus
+		long game = scorer.newGame();
+		game = scorer.roll(game, 3);
+		game = scorer.roll(game, 3);
+		assertEquals(0, scorer.frame(game));
+		game = scorer.roll(game, 4);
+		assertEquals(1, scorer.frame(game));
+		game = scorer.roll(game, 5);
+		assertEquals(15, RulesScorer.total(game));
+
+		// Spare with the second ball earns one bonus ball
+		game = scorer.roll(game, 5);
+		game = scorer.roll(game, 2);
+		assertEquals(24, RulesScorer.total(game));	// 10 + (10 + 2) + 2
+
+		// Perfect game
+		game = scorer.newGame();
+		for (int i = 0; i < 12; i++)
+			game = scorer.roll(game, 10);
+		assertTrue(scorer.isFinished(game));
+		assertEquals(300, RulesScorer.total(game));
+	}
+
+	@Test
+	public void testFivePin() {
+		RulesScorer scorer = new RulesScorer(BowlingRules.FIVE_PIN);
+		long game = scorer.newGame();
+		for (int i = 0; i < 12; i++)
+			game = scorer.roll(game, 15);
+		assertEquals(450, RulesScorer.total(game));
+		try {
+			scorer.roll(scorer.newGame(), 16);
+			fail("Only 15 pin points can be knocked down!");
+		} catch (IllegalStateException e) {
+			// Success
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import main.BowlingScore;
+import main.PackedGame;
+import main.ScoreCache;
+
+public class TestScoreCache {
+
+	private static String randomLine(Random random) {
+		StringBuilder line = new StringBuilder();
+		int state = PackedGame.NEW_GAME;
+		while (!PackedGame.isFinished(state)) {
+			int pins = random.nextInt(PackedGame.pinsStanding(state) + 1);
+			if (pins == PackedGame.pinsStanding(state))
+				line.append(PackedGame.isMidRack(state) ? '/' : 'X');
+			else
+				line.append(pins == 0 ? '-' : (char) ('0' + pins));
+			state = PackedGame.roll(state, pins);
+		}
+		return line.toString();
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		ScoreCache cache = new ScoreCache(64);
+		assertEquals(300, cache.score("XXXXXXXXXXXX"));
+		assertEquals(1, cache.getMisses());
+		assertEquals(300, cache.score("XXXXXXXXXXXX"));
+		assertEquals(300, cache.score("XXXXXXXXXXXX"));
+		assertEquals(2, cache.getHits());
+		assertEquals(167, cache.score("X7/9-X-88/-6XXX81"));
+		assertEquals(90, cache.score("9-9-9-9-9-9-9-9-9-9-"));
+		assertEquals(90, cache.score("9-9-9-9-9-9-9-9-9-9-"));
+		assertEquals(3, cache.getHits());
+		assertEquals(3, cache.getMisses());
+		assertEquals(0.5, cache.getHitRate(), 0);
+	}
+
+	@Test
+	public void testInvalidLinesNotCached() {
+		ScoreCache cache = new ScoreCache(64);
+		for (int i = 0; i < 2; i++) {
+			try {
+				cache.score("XX//");
+				fail("Invalid line should not be scored!");
+			} catch (IllegalStateException e) {
+				// Success
+			}
+		}
+		assertEquals(0, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testSameAsBowlingScoreWhenEvicting() {
+		// Far more distinct lines than entries, so that entries are evicted all the time
+		ScoreCache cache = new ScoreCache(16);
+		Random random = new Random(11);
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < 200; i++)
+			lines.add(randomLine(random));
+		for (int i = 0; i < 20000; i++) {
+			String line = lines.get(random.nextInt(random.nextBoolean() ? 8 : lines.size()));
+			assertEquals(line, BowlingScore.fromLine(line).calculateTotalScore(), cache.score(line));
+		}
+		assertEquals(16, cache.getCapacity());
+		assertTrue(cache.getHits() > 0);
+	}
+
+	@Test
+	public void testPrefixesAreDistinct() {
+		ScoreCache cache = new ScoreCache(64);
+		assertEquals(9, cache.score("9"));
+		assertEquals(9, cache.score("9-"));
+		assertEquals(18, cache.score("9-9"));
+		assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	public void testConcurrentReadersAndWriters() throws InterruptedException {
+		final ScoreCache cache = new ScoreCache(8);
+		final List<String> lines = new ArrayList<String>();
+		final List<Integer> scores = new ArrayList<Integer>();
+		Random random = new Random(13);
+		for (int i = 0; i < 64; i++) {
+			String line = randomLine(random);
+			lines.add(line);
+			scores.add(BowlingScore.fromLine(line).calculateTotalScore());
+		}
+
+		final AtomicReference<String> wrong = new AtomicReference<String>();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final Random seed = new Random(t);
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 50000; i++) {
+						int index = seed.nextInt(lines.size());
+						if (cache.score(lines.get(index)) != scores.get(index))
+							wrong.set(lines.get(index));
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertNull("Wrong score for " + wrong.get(), wrong.get());
+		assertEquals(200000, cache.getHits() + cache.getMisses());
+	}
+}
@@ -0,0 +1,93 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.StreamSupport;
+
+import org.junit.Test;
+
+import main.ScoreStreams;
+import main.ScoringPipeline;
+
+public class TestScoreStreams {
+
+	private static final String[] LINES = { "XXXXXXXXXXXX", "9-9-9-9-9-9-9-9-9-9-", "X7/9-X-88/-6XXX81",
+			"5/5/5/5/5/5/5/5/5/5/5", "X34", "XX//", "abc", "", " 9 - \r" };
+
+	private static String randomText(int lines, boolean lineBreakAtEnd) {
+		Random random = new Random(lines);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < lines; i++)
+			text.append(LINES[random.nextInt(LINES.length)]).append('\n');
+		if (!lineBreakAtEnd)
+			text.append("X7/9-X-88/-6XXX81");
+		return text.toString();
+	}
+
+	private static int[] runPipeline(String text) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new ScoringPipeline(16, 1).run(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)), out);
+		String output = new String(out.toByteArray(), StandardCharsets.US_ASCII);
+		if (output.isEmpty())
+			return new int[0];
+		String[] results = output.split("\n");
+		int[] totals = new int[results.length];
+		for (int i = 0; i < results.length; i++)
+			totals[i] = results[i].equals(ScoringPipeline.ERROR) ? ScoreStreams.INVALID : Integer.parseInt(results[i]);
+		return totals;
+	}
+
+	@Test
+	public void testValidationCases() {
+		assertArrayEquals(new int[] { 300, 90, 150, 167 },
+				ScoreStreams.totals("XXXXXXXXXXXX\n9-9-9-9-9-9-9-9-9-9-\r\n5/5/5/5/5/5/5/5/5/5/5\nX7/9-X-88/-6XXX81").toArray());
+		assertEquals(ScoreStreams.INVALID, ScoreStreams.score("XX//"));
+		assertEquals(0, ScoreStreams.totals("").count());
+	}
+
+	@Test
+	public void testParallelSameAsPipeline() throws IOException {
+		for (boolean lineBreakAtEnd : new boolean[] { true, false }) {
+			String text = randomText(50000, lineBreakAtEnd);
+			int[] expected = runPipeline(text);
+			assertArrayEquals(expected, ScoreStreams.totals(text).parallel().toArray());
+			assertArrayEquals(expected, ScoreStreams.sizedTotals(text).parallel().toArray());
+			assertArrayEquals(expected, ScoreStreams.totals(CharBuffer.wrap(text)).parallel().toArray());
+			assertArrayEquals(expected, ScoreStreams.totals(Arrays.asList(text.split("\n", -1))
+					.subList(0, expected.length).parallelStream()).toArray());
+		}
+	}
+
+	@Test
+	public void testSizedSplitsEvenly() {
+		String text = randomText(10000, true);
+		Spliterator.OfInt spliterator = ScoreStreams.sizedTotals(text).spliterator();
+		assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+		assertEquals(10000, spliterator.getExactSizeIfKnown());
+		Spliterator.OfInt prefix = spliterator.trySplit();
+		assertEquals(5000, prefix.getExactSizeIfKnown());
+		assertEquals(5000, spliterator.getExactSizeIfKnown());
+		assertEquals(10000, ScoreStreams.sizedTotals(text).parallel().count());
+	}
+
+	@Test
+	public void testUnsizedSplitsOnLineBoundaries() {
+		String text = randomText(10000, true);
+		Spliterator.OfInt spliterator = ScoreStreams.totals(text).spliterator();
+		assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+		long estimate = spliterator.estimateSize();
+		assertTrue(estimate > 5000 && estimate < 20000);
+		Spliterator.OfInt prefix = spliterator.trySplit();
+		long count = StreamSupport.intStream(prefix, false).count()
+				+ StreamSupport.intStream(spliterator, false).count();
+		assertEquals(10000, count);
+	}
+}
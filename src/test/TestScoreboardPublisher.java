@@ -0,0 +1,127 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import main.BowlingScore;
+import main.ScoreboardPublisher;
+import main.ScoreboardPublisher.Update;
+
+public class TestScoreboardPublisher {
+
+	/** Long enough that only explicit publishing happens during a test. **/
+	private static final long NEVER = TimeUnit.HOURS.toMillis(1);
+
+	private static class Recorder implements Consumer<Update> {
+		private final List<Update> updates = new ArrayList<Update>();
+
+		@Override
+		public void accept(Update update) {
+			updates.add(update);
+		}
+	}
+
+	@Test
+	public void testOnlyChangedCellsSent() {
+		try (ScoreboardPublisher publisher = new ScoreboardPublisher(NEVER)) {
+			Recorder recorder = new Recorder();
+			publisher.subscribe(recorder);
+			BowlingScore game = new BowlingScore();
+			game.processStrike();
+			publisher.update(4, game);
+			publisher.publish();
+			assertEquals("Update[-1->1] 4:1=10", recorder.updates.get(0).toString());
+
+			// Strike bonus changes the first cell along with the new ones
+			game.processNumber(3);
+			game.processNumber(4);
+			publisher.update(4, game);
+			publisher.publish();
+			assertEquals("Update[1->2] 4:1=17 4:2=24", recorder.updates.get(1).toString());
+
+			// Nothing changed, nothing sent
+			publisher.update(4, game);
+			publisher.publish();
+			assertEquals(2, recorder.updates.size());
+		}
+	}
+
+	@Test
+	public void testBurstCoalesced() {
+		try (ScoreboardPublisher publisher = new ScoreboardPublisher(NEVER)) {
+			Recorder recorder = new Recorder();
+			publisher.subscribe(recorder);
+			BowlingScore game = new BowlingScore();
+			String line = "X7/9-X-8";
+			for (int i = 0; i < line.length(); i++) {
+				game.processRoll(line.charAt(i));
+				publisher.update(1, game);
+			}
+			publisher.update(2, new int[] { 9 });
+			publisher.publish();
+			assertEquals(1, recorder.updates.size());
+			assertEquals("Update[-1->8] 1:1=20 1:2=39 1:3=48 1:4=66 1:5=74 2:1=9",
+					recorder.updates.get(0).toString());
+
+			// New game on the lane blanks its cells
+			publisher.update(1, new int[0]);
+			publisher.publish();
+			assertEquals("Update[8->9] 1:1=-1 1:2=-1 1:3=-1 1:4=-1 1:5=-1",
+					recorder.updates.get(1).toString());
+		}
+	}
+
+	@Test
+	public void testClientsShareUpdates() {
+		try (ScoreboardPublisher publisher = new ScoreboardPublisher(NEVER)) {
+			Recorder[] recorders = new Recorder[100];
+			for (int i = 0; i < recorders.length; i++) {
+				recorders[i] = new Recorder();
+				publisher.subscribe(recorders[i]);
+			}
+			publisher.update(3, new int[] { 5 });
+			publisher.publish();
+			publisher.update(3, new int[] { 8 });
+			Recorder late = new Recorder();
+			ScoreboardPublisher.Client client = publisher.subscribe(late);
+			publisher.publish();
+
+			// Same version seen, same update object
+			for (Recorder recorder : recorders)
+				assertSame(recorders[0].updates.get(1), recorder.updates.get(1));
+			assertEquals("Update[1->2] 3:1=8", recorders[0].updates.get(1).toString());
+			assertEquals("Update[-1->2] 3:1=8", late.updates.get(0).toString());
+			assertEquals(2, client.getVersion());
+
+			client.unsubscribe();
+			publisher.update(3, new int[] { 9 });
+			publisher.publish();
+			assertEquals(1, late.updates.size());
+		}
+	}
+
+	@Test
+	public void testPublishedEveryWindow() throws InterruptedException {
+		try (ScoreboardPublisher publisher = new ScoreboardPublisher(10)) {
+			final BlockingQueue<Update> updates = new LinkedBlockingQueue<Update>();
+			publisher.subscribe(new Consumer<Update>() {
+				@Override
+				public void accept(Update update) {
+					updates.add(update);
+				}
+			});
+			assertEquals(0, updates.poll(5, TimeUnit.SECONDS).size());		// Empty scoreboard
+			publisher.update(7, new int[] { 10, 30 });
+			Update update = updates.poll(5, TimeUnit.SECONDS);
+			assertEquals("Update[0->1] 7:1=10 7:2=30", update.toString());
+		}
+	}
+}
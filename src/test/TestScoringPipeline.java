@@ -0,0 +1,52 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+import main.PackedGame;
+import main.ScoringPipeline;
+
+public class TestScoringPipeline {
+
+	private static String run(ScoringPipeline pipeline, String input) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		pipeline.run(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)), out);
+		return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	@Test
+	public void testValidationCases() throws IOException {
+		String input = "XXXXXXXXXXXX\n9-9-9-9-9-9-9-9-9-9-\r\n5/5/5/5/5/5/5/5/5/5/5\nX7/9-X-88/-6XXX81";
+		assertEquals("300\n90\n150\n167\n", run(new ScoringPipeline(4, 2), input));
+	}
+
+	@Test
+	public void testInvalidLines() throws IOException {
+		String input = "XX//\nabc\nXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXX\n9-\n";
+		assertEquals("error\nerror\nerror\n9\n", run(new ScoringPipeline(2, 1), input));
+	}
+
+	@Test
+	public void testOrderKeptAcrossWraps() throws IOException {
+		String[] lines = { "XXXXXXXXXXXX", "9-9-9-9-9-9-9-9-9-9-", "X7/9-X-88/-6XXX81", "5/5/5/5/5/5/5/5/5/5/5",
+				"--------------------", "X34" };
+		Random random = new Random(3);
+		StringBuilder input = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 50000; i++) {
+			String line = lines[random.nextInt(lines.length)];
+			input.append(line).append('\n');
+			expected.append(PackedGame.scoreLine(line)).append('\n');
+		}
+
+		// Small ring buffer with several scorers, so that every slot is reused many times
+		assertEquals(expected.toString(), run(new ScoringPipeline(8, 3), input.toString()));
+	}
+}
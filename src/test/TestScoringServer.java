@@ -0,0 +1,90 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import main.ScoringServer;
+
+public class TestScoringServer {
+
+	private ScoringServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new ScoringServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2);
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	/**
+	 * Posts a body to the server over loopback and returns the status code and response body.
+	 */
+	private String post(String path, String body) throws IOException {
+		URL url = new URL("http://127.0.0.1:" + server.getPort() + path);
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(body.getBytes(StandardCharsets.US_ASCII));
+		}
+		int status = connection.getResponseCode();
+		InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		try {
+			return status + ":" + new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void testScore() throws IOException {
+		assertEquals("200:300\n", post(ScoringServer.SCORE_PATH, "XXXXXXXXXXXX"));
+		assertEquals("200:90\n", post(ScoringServer.SCORE_PATH, "9-9-9-9-9-9-9-9-9-9-"));
+		assertEquals("200:150\n", post(ScoringServer.SCORE_PATH, "5/5/5/5/5/5/5/5/5/5/5"));
+		assertEquals("200:167\n", post(ScoringServer.SCORE_PATH, "X7/9-X-88/-6XXX81"));
+	}
+
+	@Test
+	public void testInvalidScore() throws IOException {
+		assertTrue(post(ScoringServer.SCORE_PATH, "X7/9-abc").startsWith("400:"));
+		assertTrue(post(ScoringServer.SCORE_PATH, "//").startsWith("400:"));
+	}
+
+	@Test
+	public void testOversizedBody() throws IOException {
+		assertEquals("200:150\n", post(ScoringServer.SCORE_PATH, "5/5/5/5/5/5/5/5/5/5/5\r\n"));
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < 1000; i++)
+			body.append('X');
+		assertTrue(post(ScoringServer.SCORE_PATH, body.toString()).startsWith("413:"));
+		assertTrue(post(ScoringServer.SCORECARD_PATH, body.toString()).startsWith("413:"));
+	}
+
+	@Test
+	public void testBatch() throws IOException {
+		String body = "XXXXXXXXXXXX\n9-9-9-9-9-9-9-9-9-9-\nbad\n5/5/5/5/5/5/5/5/5/5/5\nX7/9-X-88/-6XXX81\n";
+		assertEquals("200:300\n90\nerror\n150\n167\n", post(ScoringServer.BATCH_PATH, body));
+	}
+
+	@Test
+	public void testScorecard() throws IOException {
+		assertEquals("200:20 39 48 66 74 84 90 120 148 167\n",
+				post(ScoringServer.SCORECARD_PATH, "X7/9-X-88/-6XXX81"));
+	}
+}
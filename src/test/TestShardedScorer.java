@@ -0,0 +1,119 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.ScoringPipeline;
+import main.ShardedScorer;
+
+public class TestShardedScorer {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Worker that claims a chunk and dies before completing it.
+	 */
+	public static class CrashingWorker {
+		public static void main(String[] args) throws IOException {
+			ShardedScorer.Worker worker = new ShardedScorer.Worker(Paths.get(args[0]),
+					Paths.get(args[1]), Integer.parseInt(args[2]));
+			worker.claim();
+			Runtime.getRuntime().halt(1);
+		}
+	}
+
+	/**
+	 * Coordinator whose first workers crash.
+	 */
+	private static class CrashingScorer extends ShardedScorer {
+		private final int crashes;
+
+		private CrashingScorer(Path input, Path workDir, int crashes) {
+			super(input, workDir, 2, 64);
+			this.crashes = crashes;
+		}
+
+		@Override
+		protected List<String> workerCommand(int id) {
+			List<String> command = super.workerCommand(id);
+			if (id <= crashes)
+				command.set(command.indexOf(ShardedScorer.class.getName()), CrashingWorker.class.getName());
+			return command;
+		}
+	}
+
+	private static String runPipeline(String input) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new ScoringPipeline(16, 1).run(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)), out);
+		return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	private static String run(ShardedScorer scorer) throws IOException, InterruptedException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		scorer.run(out);
+		return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	private Path writeInput(String input) throws IOException {
+		Path file = folder.newFile().toPath();
+		Files.write(file, input.getBytes(StandardCharsets.US_ASCII));
+		return file;
+	}
+
+	private static String randomInput() {
+		String[] lines = { "XXXXXXXXXXXX", "9-9-9-9-9-9-9-9-9-9-", "X7/9-X-88/-6XXX81",
+				"5/5/5/5/5/5/5/5/5/5/5", "X34", "XX//", "", " 9 - \r" };
+		Random random = new Random(17);
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 500; i++)
+			input.append(lines[random.nextInt(lines.length)]).append('\n');
+		return input.append("X7/9-X-88/-6XXX8").toString();
+	}
+
+	@Test
+	public void testSameAsPipeline() throws IOException, InterruptedException {
+		String input = randomInput();
+		ShardedScorer scorer = new ShardedScorer(writeInput(input), folder.newFolder().toPath(), 3, 100);
+		assertEquals(runPipeline(input), run(scorer));
+		assertEquals(0, scorer.getRetries());
+		assertEquals(0, scorer.getFailedChunks());
+	}
+
+	@Test
+	public void testCrashedWorkerRetried() throws IOException, InterruptedException {
+		String input = randomInput();
+		ShardedScorer scorer = new CrashingScorer(writeInput(input), folder.newFolder().toPath(), 2);
+		assertEquals(runPipeline(input), run(scorer));
+		assertEquals(2, scorer.getRetries());
+		assertEquals(0, scorer.getFailedChunks());
+	}
+
+	@Test
+	public void testChunkGivenUpAfterMaxAttempts() throws IOException, InterruptedException {
+		ShardedScorer scorer = new CrashingScorer(writeInput("XXXXXXXXXXXX\n9-\n"),
+				folder.newFolder().toPath(), Integer.MAX_VALUE);
+		assertEquals("error\nerror\n", run(scorer));
+		assertEquals(1, scorer.getFailedChunks());
+		assertEquals(ShardedScorer.MAX_ATTEMPTS - 1, scorer.getRetries());
+	}
+
+	@Test
+	public void testEmptyInput() throws IOException, InterruptedException {
+		ShardedScorer scorer = new ShardedScorer(writeInput(""), folder.newFolder().toPath(), 2);
+		assertEquals("", run(scorer));
+	}
+}